@@ -1,13 +1,19 @@
 package com.onyshkiv.finance.controller;
 
+import com.onyshkiv.finance.model.dto.request.BatchTransferRequest;
 import com.onyshkiv.finance.model.dto.request.CashboxRequest;
 import com.onyshkiv.finance.model.dto.request.TransferRequest;
+import com.onyshkiv.finance.model.dto.response.CashboxActivityPageResponse;
+import com.onyshkiv.finance.model.dto.response.CashboxBalanceHistoryResponse;
+import com.onyshkiv.finance.model.dto.response.CashboxBalanceResponse;
 import com.onyshkiv.finance.model.dto.response.CashboxResponse;
 import com.onyshkiv.finance.model.dto.response.ExtendedCashboxResponse;
 import com.onyshkiv.finance.model.dto.response.TransferResponse;
+import com.onyshkiv.finance.model.entity.BalanceHistoryGranularity;
 import com.onyshkiv.finance.service.CashboxService;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -16,8 +22,10 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.time.LocalDate;
 import java.util.List;
 import java.util.UUID;
 
@@ -48,6 +56,11 @@ public class CashboxController {
         return ResponseEntity.ok(transferResponse);
     }
 
+    @PutMapping("/transfer/batch")
+    public ResponseEntity<List<TransferResponse>> transferBatch(@RequestBody @Valid BatchTransferRequest batchTransferRequest) {
+        return ResponseEntity.ok(cashboxService.transferBatch(batchTransferRequest));
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<CashboxResponse> updateCashbox(@PathVariable("id") UUID id, @RequestBody @Valid CashboxRequest cashboxRequest) {
         CashboxResponse cashboxResponse = cashboxService.update(id, cashboxRequest);
@@ -59,6 +72,27 @@ public class CashboxController {
         return ResponseEntity.ok(cashboxService.findById(id));
     }
 
+    @GetMapping("/{id}/activity")
+    public ResponseEntity<CashboxActivityPageResponse> getCashboxActivity(@PathVariable("id") UUID id,
+                                                                          @RequestParam(value = "cursor", required = false) String cursor,
+                                                                          @RequestParam(value = "size", required = false) Integer size) {
+        return ResponseEntity.ok(cashboxService.getCashboxActivity(id, cursor, size));
+    }
+
+    @GetMapping("/{id}/balance")
+    public ResponseEntity<CashboxBalanceResponse> getCashboxBalance(@PathVariable("id") UUID id,
+                                                                    @RequestParam(value = "date", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        return ResponseEntity.ok(cashboxService.getBalance(id, date));
+    }
+
+    @GetMapping("/{id}/balance-history")
+    public ResponseEntity<CashboxBalanceHistoryResponse> getCashboxBalanceHistory(@PathVariable("id") UUID id,
+                                                                                  @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                                                  @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                                                  @RequestParam(value = "granularity", defaultValue = "day") String granularity) {
+        return ResponseEntity.ok(cashboxService.getBalanceHistory(id, from, to, BalanceHistoryGranularity.of(granularity)));
+    }
+
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteCashbox(@PathVariable("id") UUID id) {
         cashboxService.markDeleted(id);
@@ -6,6 +6,7 @@ import com.onyshkiv.finance.model.dto.monobank.MonobankAccountDto;
 import com.onyshkiv.finance.model.dto.monobank.MonobankCardResponse;
 import com.onyshkiv.finance.model.dto.monobank.MonobankTransactionDto;
 import com.onyshkiv.finance.service.MonobankService;
+import com.onyshkiv.finance.service.MonobankWebhookInboxService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -22,9 +23,11 @@ import java.util.List;
 @RequestMapping("/mono")
 public class MonobankIntegrationController {
     private final MonobankService monobankService;
+    private final MonobankWebhookInboxService monobankWebhookInboxService;
 
-    public MonobankIntegrationController(MonobankService monobankService) {
+    public MonobankIntegrationController(MonobankService monobankService, MonobankWebhookInboxService monobankWebhookInboxService) {
         this.monobankService = monobankService;
+        this.monobankWebhookInboxService = monobankWebhookInboxService;
     }
 
     @PostMapping("/request")
@@ -63,7 +66,7 @@ public class MonobankIntegrationController {
     @PostMapping("/transaction")
     public ResponseEntity<Void> transactionWebhook(@RequestBody(required = false) MonobankTransactionDto monobankTransactionDto) {
         if (monobankTransactionDto != null) {
-            monobankService.parseAndSaveTransactionWebhook(monobankTransactionDto.getData());
+            monobankWebhookInboxService.enqueue(monobankTransactionDto.getData());
         }
         return ResponseEntity.ok().build();
     }
@@ -1,13 +1,19 @@
 package com.onyshkiv.finance.controller;
 
 import com.onyshkiv.finance.model.dto.TransactionDto;
+import com.onyshkiv.finance.model.dto.response.TransactionImportResponse;
+import com.onyshkiv.finance.model.dto.response.TransactionPageResponse;
+import com.onyshkiv.finance.model.entity.TransactionImportFormat;
 import com.onyshkiv.finance.model.entity.TransactionType;
+import com.onyshkiv.finance.service.TransactionImportService;
 import com.onyshkiv.finance.service.TransactionService;
 import com.onyshkiv.finance.util.ValidEnum;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -18,7 +24,10 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.UUID;
@@ -28,6 +37,7 @@ import java.util.UUID;
 @RequestMapping("/transaction")
 public class TransactionController {
     private final TransactionService transactionService;
+    private final TransactionImportService transactionImportService;
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
@@ -35,6 +45,15 @@ public class TransactionController {
         return transactionService.save(transactionDto);
     }
 
+    @PostMapping(value = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @ResponseStatus(HttpStatus.OK)
+    public TransactionImportResponse importTransactions(@RequestParam("file") MultipartFile file,
+                                                        @RequestParam("cashboxId") UUID cashboxId,
+                                                        @RequestParam(value = "format", required = false) String format) throws IOException {
+        TransactionImportFormat importFormat = TransactionImportFormat.of(format, file.getOriginalFilename());
+        return transactionImportService.importTransactions(cashboxId, importFormat, file);
+    }
+
     @PutMapping("/{id}")
     @ResponseStatus(HttpStatus.OK)
     public TransactionDto updateTransaction(@PathVariable("id") UUID id, @RequestBody @Valid TransactionDto transactionDto) {
@@ -65,4 +84,22 @@ public class TransactionController {
                                                                @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
         return transactionService.getUserTransactionsByDateRange(from, to);
     }
+
+    @GetMapping("/page")
+    @ResponseStatus(HttpStatus.OK)
+    public TransactionPageResponse getUserTransactionsPage(@RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                           @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                           @RequestParam(value = "type", required = false) TransactionType transactionType,
+                                                           @RequestParam(value = "cursor", required = false) String cursor,
+                                                           @RequestParam(value = "size", required = false) Integer size) {
+        return transactionService.getUserTransactionsPage(from, to, transactionType, cursor, size);
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamUserTransactions(@RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                                        @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                                        @RequestParam(value = "type", required = false) TransactionType transactionType) {
+        StreamingResponseBody body = outputStream -> transactionService.streamUserTransactions(from, to, transactionType, outputStream);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
 }
@@ -1,13 +1,17 @@
 package com.onyshkiv.finance.controller;
 
+import com.onyshkiv.finance.model.dto.response.CurrencyChangeJobResponse;
 import com.onyshkiv.finance.model.entity.Currency;
 import com.onyshkiv.finance.service.UserService;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.UUID;
+
 @RestController
 @RequestMapping("/user")
 public class UserController {
@@ -18,8 +22,12 @@ public class UserController {
     }
 
     @PutMapping("/changeCurrency/{currencyToConvert}")
-    public ResponseEntity<Void> changeBaseCurrency(@PathVariable("currencyToConvert") Currency currencyToConvert) {
-        userService.changeUserBaseCurrency(currencyToConvert);
-        return ResponseEntity.ok().build();
+    public ResponseEntity<CurrencyChangeJobResponse> changeBaseCurrency(@PathVariable("currencyToConvert") Currency currencyToConvert) {
+        return ResponseEntity.accepted().body(userService.changeUserBaseCurrency(currencyToConvert));
+    }
+
+    @GetMapping("/changeCurrency/jobs/{id}")
+    public ResponseEntity<CurrencyChangeJobResponse> getCurrencyChangeJob(@PathVariable("id") UUID id) {
+        return ResponseEntity.ok(userService.getCurrencyChangeJob(id));
     }
 }
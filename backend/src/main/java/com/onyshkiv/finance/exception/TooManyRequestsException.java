@@ -0,0 +1,7 @@
+package com.onyshkiv.finance.exception;
+
+public class TooManyRequestsException extends ExternalServiceException {
+    public TooManyRequestsException(String message) {
+        super(message);
+    }
+}
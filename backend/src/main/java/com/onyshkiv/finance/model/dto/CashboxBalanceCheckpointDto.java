@@ -0,0 +1,7 @@
+package com.onyshkiv.finance.model.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+public record CashboxBalanceCheckpointDto(LocalDate date, BigDecimal balance) {
+}
@@ -0,0 +1,14 @@
+package com.onyshkiv.finance.model.dto;
+
+import com.onyshkiv.finance.model.entity.CashboxLedgerEntryType;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+
+public record CashboxLedgerEntryDto(UUID cashboxId,
+                                    BigDecimal delta,
+                                    CashboxLedgerEntryType type,
+                                    UUID referenceId,
+                                    LocalDate entryDate) {
+}
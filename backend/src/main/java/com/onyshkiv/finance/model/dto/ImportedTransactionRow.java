@@ -0,0 +1,15 @@
+package com.onyshkiv.finance.model.dto;
+
+import com.onyshkiv.finance.model.entity.Currency;
+import com.onyshkiv.finance.model.entity.TransactionType;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * One transaction of an imported bank export. A negative amount without an explicit type is an expense;
+ * a missing currency means the currency of the target cashbox.
+ */
+public record ImportedTransactionRow(LocalDate date, BigDecimal amount, TransactionType type, Currency currency,
+                                     String category, String description, String externalId) {
+}
@@ -0,0 +1,16 @@
+package com.onyshkiv.finance.model.dto;
+
+import com.onyshkiv.finance.model.entity.Currency;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+
+public record TransactionAmountDto(UUID id,
+                                   LocalDate transactionDate,
+                                   BigDecimal amount,
+                                   BigDecimal baseAmount,
+                                   Currency baseCurrency,
+                                   BigDecimal coefficient,
+                                   Currency coefficientCurrency) {
+}
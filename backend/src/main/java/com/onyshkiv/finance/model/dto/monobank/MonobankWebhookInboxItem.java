@@ -0,0 +1,6 @@
+package com.onyshkiv.finance.model.dto.monobank;
+
+import java.util.UUID;
+
+public record MonobankWebhookInboxItem(UUID id, String accountId, String payload, int attempts) {
+}
@@ -1,6 +1,7 @@
 package com.onyshkiv.finance.model.dto.monobank;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -31,6 +32,7 @@ public class StatementItemDetailsDto {
     private Boolean hold;
     private String receiptId;
 
+    @JsonIgnore
     public LocalDate getTransactionDate() {
         return Instant.ofEpochSecond(time)
                 .atZone(ZoneId.of("Europe/Kyiv"))
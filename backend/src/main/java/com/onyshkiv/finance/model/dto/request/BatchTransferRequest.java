@@ -0,0 +1,22 @@
+package com.onyshkiv.finance.model.dto.request;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchTransferRequest {
+
+    @NotEmpty(message = "transfers should not be empty")
+    @Size(max = 100, message = "at most 100 transfers are allowed in one batch")
+    private List<@Valid TransferRequest> transfers;
+}
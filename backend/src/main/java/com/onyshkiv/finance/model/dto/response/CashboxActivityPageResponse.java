@@ -0,0 +1,15 @@
+package com.onyshkiv.finance.model.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CashboxActivityPageResponse {
+    private List<CashboxActivityResponse> items;
+    private String nextCursor;
+}
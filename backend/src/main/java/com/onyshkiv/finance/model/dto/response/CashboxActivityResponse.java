@@ -0,0 +1,32 @@
+package com.onyshkiv.finance.model.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.onyshkiv.finance.model.dto.TransactionDto;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+@Builder
+public class CashboxActivityResponse {
+    public enum ActivityType {
+        TRANSACTION, TRANSFER
+    }
+
+    private ActivityType activityType;
+
+    private UUID id;
+
+    @JsonFormat(pattern = "dd-MM-yyyy")
+    private LocalDate date;
+
+    private TransactionDto transaction;
+
+    private TransferResponse transfer;
+}
@@ -0,0 +1,18 @@
+package com.onyshkiv.finance.model.dto.response;
+
+import com.onyshkiv.finance.model.entity.BalanceHistoryGranularity;
+import com.onyshkiv.finance.model.entity.Currency;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@AllArgsConstructor
+public class CashboxBalanceHistoryResponse {
+    private UUID cashboxId;
+    private Currency currency;
+    private BalanceHistoryGranularity granularity;
+    private List<CashboxBalancePointResponse> points;
+}
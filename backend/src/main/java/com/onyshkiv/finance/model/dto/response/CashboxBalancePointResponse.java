@@ -0,0 +1,14 @@
+package com.onyshkiv.finance.model.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Data
+@AllArgsConstructor
+public class CashboxBalancePointResponse {
+    private LocalDate date;
+    private BigDecimal balance;
+}
@@ -0,0 +1,18 @@
+package com.onyshkiv.finance.model.dto.response;
+
+import com.onyshkiv.finance.model.entity.Currency;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+
+@Data
+@AllArgsConstructor
+public class CashboxBalanceResponse {
+    private UUID cashboxId;
+    private Currency currency;
+    private LocalDate date;
+    private BigDecimal balance;
+}
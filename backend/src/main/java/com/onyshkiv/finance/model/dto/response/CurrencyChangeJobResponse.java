@@ -0,0 +1,31 @@
+package com.onyshkiv.finance.model.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+@Builder
+public class CurrencyChangeJobResponse {
+    private UUID id;
+
+    private String currency;
+
+    private String status;
+
+    private int totalTransactions;
+
+    private int convertedTransactions;
+
+    private String error;
+
+    private LocalDateTime createdAt;
+
+    private LocalDateTime finishedAt;
+}
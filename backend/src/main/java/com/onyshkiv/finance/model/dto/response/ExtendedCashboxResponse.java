@@ -1,13 +1,11 @@
 package com.onyshkiv.finance.model.dto.response;
 
-import com.onyshkiv.finance.model.dto.TransactionDto;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
-import java.util.List;
 import java.util.UUID;
 
 @AllArgsConstructor
@@ -25,7 +23,5 @@ public class ExtendedCashboxResponse {
 
     private BigDecimal balance;
 
-    private List<TransferResponse> transfers;
-
-    private List<TransactionDto> transactions;
+    private CashboxActivityPageResponse activity;
 }
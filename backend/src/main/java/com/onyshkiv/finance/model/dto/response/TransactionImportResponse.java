@@ -0,0 +1,12 @@
+package com.onyshkiv.finance.model.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class TransactionImportResponse {
+    private int received;
+    private int imported;
+    private int duplicates;
+}
@@ -0,0 +1,14 @@
+package com.onyshkiv.finance.model.dto.response;
+
+import com.onyshkiv.finance.model.dto.TransactionDto;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class TransactionPageResponse {
+    private List<TransactionDto> items;
+    private String nextCursor;
+}
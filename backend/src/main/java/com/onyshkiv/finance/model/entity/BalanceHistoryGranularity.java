@@ -0,0 +1,56 @@
+package com.onyshkiv.finance.model.entity;
+
+import com.onyshkiv.finance.exception.UnsupportedException;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+
+public enum BalanceHistoryGranularity {
+    DAY {
+        @Override
+        public LocalDate bucketStart(LocalDate date) {
+            return date;
+        }
+
+        @Override
+        public LocalDate nextBucketStart(LocalDate bucketStart) {
+            return bucketStart.plusDays(1);
+        }
+    },
+    WEEK {
+        @Override
+        public LocalDate bucketStart(LocalDate date) {
+            return date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        }
+
+        @Override
+        public LocalDate nextBucketStart(LocalDate bucketStart) {
+            return bucketStart.plusWeeks(1);
+        }
+    },
+    MONTH {
+        @Override
+        public LocalDate bucketStart(LocalDate date) {
+            return date.withDayOfMonth(1);
+        }
+
+        @Override
+        public LocalDate nextBucketStart(LocalDate bucketStart) {
+            return bucketStart.plusMonths(1);
+        }
+    };
+
+    public abstract LocalDate bucketStart(LocalDate date);
+
+    public abstract LocalDate nextBucketStart(LocalDate bucketStart);
+
+    public static BalanceHistoryGranularity of(String value) {
+        for (BalanceHistoryGranularity granularity : values()) {
+            if (granularity.name().equalsIgnoreCase(value)) {
+                return granularity;
+            }
+        }
+        throw new UnsupportedException("Unsupported granularity " + value + ", expected day, week or month");
+    }
+}
@@ -10,10 +10,12 @@ import jakarta.persistence.OneToMany;
 import jakarta.persistence.PrePersist;
 import jakarta.persistence.PreUpdate;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.DynamicUpdate;
 import org.hibernate.annotations.JdbcType;
 import org.hibernate.dialect.PostgreSQLEnumJdbcType;
 
@@ -28,6 +30,7 @@ import java.util.UUID;
 @NoArgsConstructor
 @Data
 @Builder
+@DynamicUpdate
 public class Cashbox {
 
     @Id
@@ -44,9 +47,16 @@ public class Cashbox {
     @JdbcType(PostgreSQLEnumJdbcType.class)
     private Currency currency;
 
-    @Column(precision = 19, scale = 2)
+    /**
+     * Opening balance on insert, afterwards a cached copy of the latest balance snapshot; the exact balance lives in {@code cashbox_ledger}.
+     */
+    @Column(precision = 19, scale = 2, updatable = false)
     private BigDecimal balance;
 
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
     @Column(name = "created_at", nullable = false)
     private OffsetDateTime createdAt;
 
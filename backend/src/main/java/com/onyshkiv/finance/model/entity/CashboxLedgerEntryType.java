@@ -0,0 +1,8 @@
+package com.onyshkiv.finance.model.entity;
+
+public enum CashboxLedgerEntryType {
+    OPENING,
+    TRANSACTION,
+    TRANSFER,
+    ADJUSTMENT
+}
@@ -0,0 +1,54 @@
+package com.onyshkiv.finance.model.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.JdbcType;
+import org.hibernate.dialect.PostgreSQLEnumJdbcType;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+@Entity
+@Table(name = "exchange_rate")
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+@Builder
+public class ExchangeRate {
+
+    @Id
+    private UUID id;
+
+    @Column(name = "rate_date", nullable = false)
+    private LocalDate rateDate;
+
+    @Enumerated
+    @Column(name = "base_currency", nullable = false)
+    @JdbcType(PostgreSQLEnumJdbcType.class)
+    private Currency baseCurrency;
+
+    @Enumerated
+    @Column(name = "currency", nullable = false)
+    @JdbcType(PostgreSQLEnumJdbcType.class)
+    private Currency currency;
+
+    @Column(name = "rate", nullable = false)
+    private Double rate;
+
+    @Column(name = "created_at", nullable = false)
+    private OffsetDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        this.createdAt = OffsetDateTime.now();
+    }
+}
@@ -0,0 +1,62 @@
+package com.onyshkiv.finance.model.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * Progress of importing one Monobank account's statement history. The import walks backwards in windows from
+ * {@code cursorTo} down to {@code backfillFrom}; everything newer than {@code cursorTo} is already imported.
+ */
+@Entity
+@Table(name = "monobank_backfill_checkpoint")
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+@Builder
+public class MonobankBackfillCheckpoint {
+    @Id
+    @Column(name = "account_id", nullable = false)
+    private String accountId;
+
+    @Column(name = "user_id", nullable = false)
+    private UUID userId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false)
+    private MonobankBackfillStatus status;
+
+    @Column(name = "backfill_from", nullable = false)
+    private OffsetDateTime backfillFrom;
+
+    @Column(name = "cursor_to", nullable = false)
+    private OffsetDateTime cursorTo;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private OffsetDateTime nextAttemptAt;
+
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+    @Column(name = "imported_count", nullable = false)
+    private int importedCount;
+
+    @Column(name = "last_error")
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private OffsetDateTime createdAt;
+
+    @Column(name = "updated_at")
+    private OffsetDateTime updatedAt;
+
+    @PreUpdate
+    protected void onUpdate() {
+        this.updatedAt = OffsetDateTime.now();
+    }
+}
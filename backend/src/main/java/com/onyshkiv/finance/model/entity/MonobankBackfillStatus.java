@@ -0,0 +1,7 @@
+package com.onyshkiv.finance.model.entity;
+
+public enum MonobankBackfillStatus {
+    PENDING,
+    COMPLETED,
+    FAILED
+}
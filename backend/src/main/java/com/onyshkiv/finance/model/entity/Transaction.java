@@ -22,8 +22,8 @@ import java.util.UUID;
 @Data
 @Builder
 @NamedEntityGraph(
-        name = "graph.Transaction.category",
-        attributeNodes = @NamedAttributeNode(value = "category")
+        name = "graph.Transaction.categoryAndCashbox",
+        attributeNodes = {@NamedAttributeNode(value = "category"), @NamedAttributeNode(value = "cashbox")}
 )
 public class Transaction {
 
@@ -74,6 +74,9 @@ public class Transaction {
     @Column(name = "updated_at")
     private OffsetDateTime updatedAt;
 
+    @Column(name = "external_id", updatable = false)
+    private String externalId;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "cashbox_id", foreignKey = @ForeignKey(name = "fk_transaction_cashbox"))
     private Cashbox cashbox;
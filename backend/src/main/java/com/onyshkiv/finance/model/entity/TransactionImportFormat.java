@@ -0,0 +1,28 @@
+package com.onyshkiv.finance.model.entity;
+
+import com.onyshkiv.finance.exception.UnsupportedException;
+
+public enum TransactionImportFormat {
+    CSV,
+    JSON,
+    OFX;
+
+    /**
+     * Resolves the explicit format, or falls back to the extension of the uploaded file.
+     */
+    public static TransactionImportFormat of(String format, String fileName) {
+        String value = format;
+        if (value == null && fileName != null && fileName.lastIndexOf('.') >= 0) {
+            value = fileName.substring(fileName.lastIndexOf('.') + 1);
+        }
+        if ("qfx".equalsIgnoreCase(value)) {
+            return OFX;
+        }
+        for (TransactionImportFormat importFormat : values()) {
+            if (importFormat.name().equalsIgnoreCase(value)) {
+                return importFormat;
+            }
+        }
+        throw new UnsupportedException("Unsupported import format " + value + ", expected csv, json or ofx");
+    }
+}
@@ -0,0 +1,52 @@
+package com.onyshkiv.finance.model.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.JdbcType;
+import org.hibernate.dialect.PostgreSQLEnumJdbcType;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+
+@Entity
+@Table(name = "transaction_monthly_rollup")
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+@Builder
+public class TransactionMonthlyRollup {
+
+    @Id
+    private UUID id;
+
+    @Column(name = "user_id", nullable = false)
+    private UUID userId;
+
+    @Column(name = "month_start", nullable = false, columnDefinition = "date")
+    private LocalDate monthStart;
+
+    @Enumerated
+    @Column(name = "type", nullable = false)
+    @JdbcType(PostgreSQLEnumJdbcType.class)
+    private TransactionType type;
+
+    @Column(name = "category_id")
+    private UUID categoryId;
+
+    @Column(name = "cashbox_id")
+    private UUID cashboxId;
+
+    @Column(name = "amount", nullable = false)
+    private BigDecimal amount;
+
+    @Column(name = "transaction_count", nullable = false)
+    private Integer transactionCount;
+}
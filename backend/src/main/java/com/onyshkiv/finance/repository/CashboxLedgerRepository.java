@@ -0,0 +1,221 @@
+package com.onyshkiv.finance.repository;
+
+import com.onyshkiv.finance.model.dto.CashboxBalanceCheckpointDto;
+import com.onyshkiv.finance.model.dto.CashboxLedgerEntryDto;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+
+/**
+ * Append-only ledger of cashbox balance changes. Writers only insert rows, so they never contend on a shared row;
+ * the current balance is the {@code cashbox_balance_snapshot} plus the ledger entries it has not folded yet.
+ */
+@Repository
+public class CashboxLedgerRepository {
+    private static final String INSERT_ENTRY = """
+            INSERT INTO cashbox_ledger (cashbox_id, delta, entry_type, reference_id, entry_date)
+            VALUES (?, ?, ?, ?, ?)""";
+    private static final String CURRENT_BALANCES = """
+            SELECT c.id,
+                   COALESCE(s.balance, 0) + COALESCE((SELECT SUM(l.delta) FROM cashbox_ledger l
+                                                      WHERE l.cashbox_id = c.id AND l.xid >= COALESCE(s.folded_xid, '0'::xid8)), 0) AS balance
+            FROM cashbox c
+            LEFT JOIN cashbox_balance_snapshot s ON s.cashbox_id = c.id
+            WHERE c.id = ANY(?)""";
+    private static final String SUM_UP_TO = """
+            SELECT COALESCE(SUM(delta), 0) FROM cashbox_ledger
+            WHERE cashbox_id = ? AND entry_date <= ?""";
+    private static final String SUM_BETWEEN = """
+            SELECT COALESCE(SUM(delta), 0) FROM cashbox_ledger
+            WHERE cashbox_id = ? AND entry_date > ? AND entry_date <= ?""";
+    private static final String DAILY_DELTAS = """
+            SELECT entry_date, SUM(delta) AS delta FROM cashbox_ledger
+            WHERE cashbox_id = ? AND entry_date BETWEEN ? AND ?
+            GROUP BY entry_date
+            ORDER BY entry_date""";
+    private static final String LATEST_CHECKPOINT = """
+            SELECT checkpoint_date, balance FROM cashbox_balance_checkpoint
+            WHERE cashbox_id = ? AND checkpoint_date <= ?
+            ORDER BY checkpoint_date DESC
+            LIMIT 1""";
+    private static final String INSERT_CHECKPOINT = """
+            INSERT INTO cashbox_balance_checkpoint (cashbox_id, checkpoint_date, balance)
+            VALUES (?, ?, ?)
+            ON CONFLICT (cashbox_id, checkpoint_date) DO NOTHING""";
+    private static final String DELETE_CHECKPOINTS_FROM = """
+            DELETE FROM cashbox_balance_checkpoint WHERE cashbox_id = ? AND checkpoint_date >= ?""";
+    /*
+     * Appenders hold the shared lock of a cashbox until they commit and checkpoint writers take the exclusive one, so a
+     * checkpoint is never computed while a back-dated entry that would invalidate it is still uncommitted.
+     */
+    private static final String LOCK_CHECKPOINTS_SHARED = "SELECT pg_advisory_xact_lock_shared(hashtext('cashbox_balance_checkpoint'), hashtext(CAST(? AS TEXT)))";
+    private static final String LOCK_CHECKPOINTS = "SELECT pg_advisory_xact_lock(hashtext('cashbox_balance_checkpoint'), hashtext(CAST(? AS TEXT)))";
+    private static final String LOCK_CASHBOXES = "SELECT id FROM cashbox WHERE id = ANY(?) ORDER BY id FOR UPDATE";
+    private static final String TRY_LOCK_SNAPSHOTS = "SELECT pg_try_advisory_xact_lock(hashtext('cashbox_balance_snapshot'))";
+    /*
+     * Every ledger row records the id of the transaction that inserted it. Ids below the xmin of the current snapshot
+     * belong to transactions that have already committed or rolled back, so no row can still appear in
+     * [folded_xid, horizon) after it has been folded; rows of transactions that are still running stay above the horizon
+     * and are picked up by a later run. Only the latest snapshot of each cashbox is kept, and the new cached balance is
+     * copied into cashbox.balance in the same statement.
+     */
+    private static final String FOLD_SNAPSHOTS = """
+            WITH horizon AS (
+                SELECT pg_snapshot_xmin(pg_current_snapshot()) AS xid
+            ), folded AS (
+                SELECT c.id AS cashbox_id, COALESCE(s.balance, 0) + t.delta AS balance, h.xid AS folded_xid
+                FROM cashbox c
+                CROSS JOIN horizon h
+                LEFT JOIN cashbox_balance_snapshot s ON s.cashbox_id = c.id
+                CROSS JOIN LATERAL (SELECT SUM(l.delta) AS delta, COUNT(*) AS entries FROM cashbox_ledger l
+                                    WHERE l.cashbox_id = c.id
+                                      AND l.xid >= COALESCE(s.folded_xid, '0'::xid8) AND l.xid < h.xid) t
+                WHERE t.entries >= GREATEST(?, 1)
+            ), snapshots AS (
+                INSERT INTO cashbox_balance_snapshot (cashbox_id, balance, folded_xid, created_at)
+                SELECT cashbox_id, balance, folded_xid, now() FROM folded
+                ON CONFLICT (cashbox_id) DO UPDATE
+                    SET balance = EXCLUDED.balance, folded_xid = EXCLUDED.folded_xid, created_at = EXCLUDED.created_at
+                RETURNING cashbox_id, balance
+            )
+            UPDATE cashbox c SET balance = s.balance
+            FROM snapshots s
+            WHERE c.id = s.cashbox_id AND c.balance IS DISTINCT FROM s.balance""";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public CashboxLedgerRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void append(CashboxLedgerEntryDto entry) {
+        appendAll(List.of(entry));
+    }
+
+    /**
+     * Appends the entries and drops the balance checkpoints they make stale, i.e. those dated on or after the
+     * earliest entry of each cashbox.
+     */
+    public void appendAll(List<CashboxLedgerEntryDto> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        new TreeSet<>(entries.stream().map(CashboxLedgerEntryDto::cashboxId).toList())
+                .forEach(cashboxId -> advisoryLock(LOCK_CHECKPOINTS_SHARED, cashboxId));
+        jdbcTemplate.batchUpdate(INSERT_ENTRY, entries, entries.size(), (ps, entry) -> {
+            ps.setObject(1, entry.cashboxId());
+            ps.setBigDecimal(2, entry.delta());
+            ps.setString(3, entry.type().name());
+            ps.setObject(4, entry.referenceId());
+            ps.setObject(5, entry.entryDate());
+        });
+
+        Map<UUID, LocalDate> earliestDates = new HashMap<>();
+        entries.forEach(entry -> earliestDates.merge(entry.cashboxId(), entry.entryDate(), (first, second) -> first.isBefore(second) ? first : second));
+        List<Map.Entry<UUID, LocalDate>> invalidations = List.copyOf(earliestDates.entrySet());
+        jdbcTemplate.batchUpdate(DELETE_CHECKPOINTS_FROM, invalidations, invalidations.size(), (ps, invalidation) -> {
+            ps.setObject(1, invalidation.getKey());
+            ps.setObject(2, invalidation.getValue());
+        });
+    }
+
+    public BigDecimal currentBalance(UUID cashboxId) {
+        return currentBalances(List.of(cashboxId)).getOrDefault(cashboxId, BigDecimal.ZERO);
+    }
+
+    public Map<UUID, BigDecimal> currentBalances(Collection<UUID> cashboxIds) {
+        Map<UUID, BigDecimal> balances = new HashMap<>();
+        if (cashboxIds.isEmpty()) {
+            return balances;
+        }
+        jdbcTemplate.query(CURRENT_BALANCES,
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("uuid", cashboxIds.toArray())),
+                (RowCallbackHandler) rs -> balances.put(rs.getObject("id", UUID.class), rs.getBigDecimal("balance")));
+        return balances;
+    }
+
+    /**
+     * @return sum of the entries dated after {@code fromExclusive} (or from the beginning when it is null) up to {@code toInclusive}
+     */
+    public BigDecimal sumBetween(UUID cashboxId, LocalDate fromExclusive, LocalDate toInclusive) {
+        if (fromExclusive == null) {
+            return jdbcTemplate.queryForObject(SUM_UP_TO, BigDecimal.class, cashboxId, toInclusive);
+        }
+        if (!fromExclusive.isBefore(toInclusive)) {
+            return BigDecimal.ZERO;
+        }
+        return jdbcTemplate.queryForObject(SUM_BETWEEN, BigDecimal.class, cashboxId, fromExclusive, toInclusive);
+    }
+
+    /**
+     * @return net delta of every day in {@code [from, to]} that has entries, in date order
+     */
+    public Map<LocalDate, BigDecimal> dailyDeltas(UUID cashboxId, LocalDate from, LocalDate to) {
+        Map<LocalDate, BigDecimal> deltas = new TreeMap<>();
+        jdbcTemplate.query(DAILY_DELTAS,
+                (RowCallbackHandler) rs -> deltas.put(rs.getObject("entry_date", LocalDate.class), rs.getBigDecimal("delta")),
+                cashboxId, from, to);
+        return deltas;
+    }
+
+    public Optional<CashboxBalanceCheckpointDto> findLatestCheckpoint(UUID cashboxId, LocalDate atOrBefore) {
+        return jdbcTemplate.query(LATEST_CHECKPOINT,
+                        (rs, rowNum) -> new CashboxBalanceCheckpointDto(rs.getObject("checkpoint_date", LocalDate.class), rs.getBigDecimal("balance")),
+                        cashboxId, atOrBefore)
+                .stream()
+                .findFirst();
+    }
+
+    /**
+     * Waits for the transactions appending to the cashbox to finish and blocks new appends until the current
+     * transaction ends. Must be called before reading the ledger for a checkpoint that is going to be saved.
+     */
+    public void lockCheckpoints(UUID cashboxId) {
+        advisoryLock(LOCK_CHECKPOINTS, cashboxId);
+    }
+
+    public void saveCheckpoint(UUID cashboxId, CashboxBalanceCheckpointDto checkpoint) {
+        jdbcTemplate.update(INSERT_CHECKPOINT, cashboxId, checkpoint.date(), checkpoint.balance());
+    }
+
+    /**
+     * Locks the cashbox rows in a deterministic order for writers that must check a balance before appending.
+     */
+    public void lockCashboxes(Collection<UUID> cashboxIds) {
+        jdbcTemplate.query(LOCK_CASHBOXES,
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("uuid", cashboxIds.toArray())),
+                (RowCallbackHandler) rs -> {
+                });
+    }
+
+    /**
+     * Folds the settled ledger entries of every cashbox with at least {@code minEntries} of them into its snapshot.
+     * Must run inside a transaction; returns -1 without doing anything when another instance is already folding.
+     *
+     * @return number of cashboxes whose cached balance changed
+     */
+    public int foldSnapshots(int minEntries) {
+        if (!Boolean.TRUE.equals(jdbcTemplate.queryForObject(TRY_LOCK_SNAPSHOTS, Boolean.class))) {
+            return -1;
+        }
+        return jdbcTemplate.update(FOLD_SNAPSHOTS, minEntries);
+    }
+
+    private void advisoryLock(String sql, UUID cashboxId) {
+        jdbcTemplate.query(sql, (RowCallbackHandler) rs -> {
+        }, cashboxId);
+    }
+}
@@ -0,0 +1,44 @@
+package com.onyshkiv.finance.repository;
+
+import com.onyshkiv.finance.model.entity.Currency;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+@Repository
+public class ExchangeRateJdbcRepository {
+    private static final String INSERT_IF_ABSENT = """
+            INSERT INTO exchange_rate (id, rate_date, base_currency, currency, rate, created_at)
+            VALUES (?, ?, CAST(? AS currency_enum), CAST(? AS currency_enum), ?, ?)
+            ON CONFLICT (rate_date, base_currency, currency) DO NOTHING""";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public ExchangeRateJdbcRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Stores a downloaded rate table in one batch; rates another instance already stored for the date are kept.
+     */
+    public void insertAllIfAbsent(LocalDate rateDate, Currency baseCurrency, Map<Currency, Double> rates) {
+        Timestamp now = Timestamp.from(OffsetDateTime.now().toInstant());
+        List<Map.Entry<Currency, Double>> entries = List.copyOf(rates.entrySet());
+        jdbcTemplate.batchUpdate(INSERT_IF_ABSENT, entries, entries.size(), (ps, entry) -> {
+            ps.setObject(1, UUID.randomUUID());
+            ps.setObject(2, rateDate);
+            ps.setString(3, baseCurrency.name());
+            ps.setString(4, entry.getKey().name());
+            ps.setDouble(5, entry.getValue());
+            ps.setTimestamp(6, now);
+        });
+    }
+}
@@ -0,0 +1,18 @@
+package com.onyshkiv.finance.repository;
+
+import com.onyshkiv.finance.model.entity.Currency;
+import com.onyshkiv.finance.model.entity.ExchangeRate;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface ExchangeRateRepository extends JpaRepository<ExchangeRate, UUID> {
+    List<ExchangeRate> findAllByRateDateAndBaseCurrency(LocalDate rateDate, Currency baseCurrency);
+
+    List<ExchangeRate> findAllByRateDateInAndBaseCurrency(Collection<LocalDate> rateDates, Currency baseCurrency);
+}
@@ -8,6 +8,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -36,5 +37,8 @@ public interface MonobankAccountRepository extends JpaRepository<MonobankAccount
 
     Optional<MonobankAccount> findByAccountId(String accountId);
 
+    @Query("FROM MonobankAccount a LEFT JOIN FETCH a.cashbox WHERE a.accountId IN :accountIds")
+    List<MonobankAccount> findAllByAccountIdIn(@Param("accountIds") Collection<String> accountIds);
+
     List<MonobankAccount> findAllByUserId(UUID userId);
 }
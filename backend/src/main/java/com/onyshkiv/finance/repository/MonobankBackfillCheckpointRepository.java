@@ -0,0 +1,69 @@
+package com.onyshkiv.finance.repository;
+
+import com.onyshkiv.finance.model.entity.MonobankBackfillCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface MonobankBackfillCheckpointRepository extends JpaRepository<MonobankBackfillCheckpoint, String> {
+
+    @Modifying
+    @Query(value = """
+            INSERT INTO monobank_backfill_checkpoint (account_id, user_id, status, backfill_from, cursor_to, next_attempt_at,
+                                                      attempts, imported_count, created_at)
+            VALUES (:accountId, :userId, 'PENDING', :backfillFrom, :cursorTo, CURRENT_TIMESTAMP, 0, 0, CURRENT_TIMESTAMP)
+            ON CONFLICT (account_id) DO NOTHING
+            """, nativeQuery = true)
+    void scheduleIfAbsent(@Param("accountId") String accountId,
+                          @Param("userId") UUID userId,
+                          @Param("backfillFrom") OffsetDateTime backfillFrom,
+                          @Param("cursorTo") OffsetDateTime cursorTo);
+
+    /**
+     * Must run inside a transaction: claims of all instances are serialized through a transaction-scoped advisory
+     * lock. Returns {@code false} if another instance is claiming.
+     */
+    @Query(value = "SELECT pg_try_advisory_xact_lock(hashtext('monobank_backfill_checkpoint'))", nativeQuery = true)
+    boolean tryLockClaims();
+
+    /**
+     * Due checkpoints of monitored accounts, at most one per user, so one claim never sends two requests of the same
+     * Monobank client.
+     */
+    @Query(value = """
+            SELECT * FROM (
+                SELECT DISTINCT ON (c.user_id) c.*
+                FROM monobank_backfill_checkpoint c
+                JOIN monobank_account a ON a.account_id = c.account_id AND a.monitor
+                WHERE c.status = 'PENDING' AND c.next_attempt_at <= :now
+                ORDER BY c.user_id, c.next_attempt_at
+            ) due
+            ORDER BY due.next_attempt_at
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<MonobankBackfillCheckpoint> findDue(@Param("now") OffsetDateTime now, @Param("limit") int limit);
+
+    /**
+     * Holds the claimed account until {@code leaseUntil} and the user's other pending accounts until
+     * {@code nextRequestAt}, so no instance sends the Monobank client another request before then.
+     */
+    @Modifying
+    @Query(value = """
+            UPDATE monobank_backfill_checkpoint
+            SET next_attempt_at = GREATEST(next_attempt_at,
+                                           CASE WHEN account_id = :accountId THEN CAST(:leaseUntil AS TIMESTAMP)
+                                                ELSE CAST(:nextRequestAt AS TIMESTAMP) END)
+            WHERE user_id = :userId AND status = 'PENDING'
+            """, nativeQuery = true)
+    void deferUser(@Param("userId") UUID userId,
+                   @Param("accountId") String accountId,
+                   @Param("leaseUntil") OffsetDateTime leaseUntil,
+                   @Param("nextRequestAt") OffsetDateTime nextRequestAt);
+}
@@ -0,0 +1,116 @@
+package com.onyshkiv.finance.repository;
+
+import com.onyshkiv.finance.model.dto.monobank.MonobankWebhookInboxItem;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public class MonobankWebhookInboxRepository {
+    private static final String INSERT = """
+            INSERT INTO monobank_webhook_inbox (id, account_id, payload, status, attempts, next_attempt_at, created_at)
+            VALUES (gen_random_uuid(), ?, ?, 'PENDING', 0, now(), clock_timestamp())""";
+    private static final long CLAIM_LOCK_KEY = 7_240_311_015L;
+    private static final String TRY_CLAIM_LOCK = "SELECT pg_try_advisory_xact_lock(?)";
+    /*
+     * Claims due webhooks in arrival order. A webhook stays unclaimed while an older one of the same account is
+     * still processing or waiting for a retry, so every account is processed in arrival order; a claimed batch
+     * therefore holds an ordered prefix of each account's pending webhooks.
+     */
+    private static final String CLAIM = """
+            UPDATE monobank_webhook_inbox SET status = 'PROCESSING', locked_at = now()
+            WHERE id IN (
+                SELECT i.id FROM monobank_webhook_inbox i
+                WHERE i.status = 'PENDING' AND i.next_attempt_at <= now()
+                  AND NOT EXISTS (
+                      SELECT 1 FROM monobank_webhook_inbox p
+                      WHERE p.account_id = i.account_id
+                        AND (p.status = 'PROCESSING' OR (p.status = 'PENDING' AND p.next_attempt_at > now()))
+                        AND (p.created_at, p.id) < (i.created_at, i.id))
+                ORDER BY i.created_at, i.id
+                LIMIT ?
+                FOR UPDATE SKIP LOCKED)
+            RETURNING id, account_id, payload, attempts""";
+    private static final String MARK_DONE = """
+            UPDATE monobank_webhook_inbox SET status = 'DONE', locked_at = NULL, processed_at = now()
+            WHERE id = ?""";
+    private static final String RELEASE = """
+            UPDATE monobank_webhook_inbox SET status = 'PENDING', locked_at = NULL
+            WHERE id = ?""";
+    private static final String RESCHEDULE = """
+            UPDATE monobank_webhook_inbox
+            SET status = 'PENDING', attempts = ?, last_error = ?, locked_at = NULL,
+                next_attempt_at = now() + make_interval(secs => ?)
+            WHERE id = ?""";
+    private static final String MARK_DEAD = """
+            UPDATE monobank_webhook_inbox
+            SET status = 'DEAD', attempts = ?, last_error = ?, locked_at = NULL, processed_at = now()
+            WHERE id = ?""";
+    private static final String RELEASE_STALE = """
+            UPDATE monobank_webhook_inbox SET status = 'PENDING', locked_at = NULL
+            WHERE status = 'PROCESSING' AND locked_at < now() - make_interval(secs => ?)""";
+    private static final String DELETE_PROCESSED = """
+            DELETE FROM monobank_webhook_inbox
+            WHERE status IN ('DONE', 'DEAD') AND processed_at < now() - make_interval(days => ?)""";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public MonobankWebhookInboxRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void insert(String accountId, String payload) {
+        jdbcTemplate.update(INSERT, accountId, payload);
+    }
+
+    /**
+     * Must run inside a transaction: claims are serialized through a transaction-scoped advisory lock, so concurrent
+     * drains never take webhooks of one account out of order. Returns nothing if another drain is claiming.
+     */
+    public List<MonobankWebhookInboxItem> claim(int limit) {
+        if (!Boolean.TRUE.equals(jdbcTemplate.queryForObject(TRY_CLAIM_LOCK, Boolean.class, CLAIM_LOCK_KEY))) {
+            return List.of();
+        }
+        return jdbcTemplate.query(CLAIM, (rs, rowNum) -> new MonobankWebhookInboxItem(
+                rs.getObject("id", UUID.class),
+                rs.getString("account_id"),
+                rs.getString("payload"),
+                rs.getInt("attempts")
+        ), limit);
+    }
+
+    public void markDone(UUID id) {
+        jdbcTemplate.update(MARK_DONE, id);
+    }
+
+    public void markAllDone(List<UUID> ids) {
+        jdbcTemplate.batchUpdate(MARK_DONE, ids, ids.size(), (ps, id) -> ps.setObject(1, id));
+    }
+
+    public void release(UUID id) {
+        jdbcTemplate.update(RELEASE, id);
+    }
+
+    public void reschedule(UUID id, int attempts, String error, long delaySeconds) {
+        jdbcTemplate.update(RESCHEDULE, attempts, error, (double) delaySeconds, id);
+    }
+
+    public void markDead(UUID id, int attempts, String error) {
+        jdbcTemplate.update(MARK_DEAD, attempts, error, id);
+    }
+
+    public int releaseStale(long lockTimeoutSeconds) {
+        return jdbcTemplate.update(RELEASE_STALE, (double) lockTimeoutSeconds);
+    }
+
+    /**
+     * Deletes processed and dead-lettered webhooks.
+     */
+    public int deleteProcessedOlderThan(int days) {
+        return jdbcTemplate.update(DELETE_PROCESSED, days);
+    }
+}
@@ -0,0 +1,161 @@
+package com.onyshkiv.finance.repository;
+
+import com.onyshkiv.finance.model.entity.TransactionDailyRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface TransactionDailyRollupRepository extends JpaRepository<TransactionDailyRollup, UUID> {
+    @Modifying
+    @Query(value = """
+                INSERT INTO transaction_daily_rollup (id, user_id, rollup_date, type, category_id, cashbox_id, amount, transaction_count)
+                VALUES (gen_random_uuid(), :userId, :rollupDate, CAST(:type AS type_enum), CAST(:categoryId AS UUID), CAST(:cashboxId AS UUID),
+                        :amount, :transactionCount)
+                ON CONFLICT (user_id, rollup_date, type,
+                             COALESCE(category_id, CAST('00000000-0000-0000-0000-000000000000' AS UUID)),
+                             COALESCE(cashbox_id, CAST('00000000-0000-0000-0000-000000000000' AS UUID)))
+                DO UPDATE SET
+                    amount = transaction_daily_rollup.amount + EXCLUDED.amount,
+                    transaction_count = transaction_daily_rollup.transaction_count + EXCLUDED.transaction_count
+            """, nativeQuery = true)
+    void applyDelta(@Param("userId") UUID userId,
+                    @Param("rollupDate") LocalDate rollupDate,
+                    @Param("type") String type,
+                    @Param("categoryId") UUID categoryId,
+                    @Param("cashboxId") UUID cashboxId,
+                    @Param("amount") BigDecimal amount,
+                    @Param("transactionCount") int transactionCount);
+
+    @Modifying
+    @Query(value = """
+                DELETE FROM transaction_daily_rollup
+                WHERE user_id = :userId
+                  AND rollup_date = :rollupDate
+                  AND type = CAST(:type AS type_enum)
+                  AND category_id IS NOT DISTINCT FROM CAST(:categoryId AS UUID)
+                  AND cashbox_id IS NOT DISTINCT FROM CAST(:cashboxId AS UUID)
+                  AND transaction_count <= 0
+            """, nativeQuery = true)
+    void deleteIfEmpty(@Param("userId") UUID userId,
+                       @Param("rollupDate") LocalDate rollupDate,
+                       @Param("type") String type,
+                       @Param("categoryId") UUID categoryId,
+                       @Param("cashboxId") UUID cashboxId);
+
+    @Modifying
+    @Query(value = """
+                INSERT INTO transaction_daily_rollup (id, user_id, rollup_date, type, category_id, cashbox_id, amount, transaction_count)
+                SELECT gen_random_uuid(), user_id, rollup_date, type, CAST(:categoryIdTo AS UUID), cashbox_id, amount, transaction_count
+                FROM transaction_daily_rollup
+                WHERE user_id = :userId
+                  AND category_id IS NOT DISTINCT FROM CAST(:categoryIdFrom AS UUID)
+                  AND type = CAST(:type AS type_enum)
+                ON CONFLICT (user_id, rollup_date, type,
+                             COALESCE(category_id, CAST('00000000-0000-0000-0000-000000000000' AS UUID)),
+                             COALESCE(cashbox_id, CAST('00000000-0000-0000-0000-000000000000' AS UUID)))
+                DO UPDATE SET
+                    amount = transaction_daily_rollup.amount + EXCLUDED.amount,
+                    transaction_count = transaction_daily_rollup.transaction_count + EXCLUDED.transaction_count
+            """, nativeQuery = true)
+    void mergeCategory(@Param("userId") UUID userId,
+                       @Param("categoryIdFrom") UUID categoryIdFrom,
+                       @Param("categoryIdTo") UUID categoryIdTo,
+                       @Param("type") String type);
+
+    @Modifying
+    @Query(value = """
+                DELETE FROM transaction_daily_rollup
+                WHERE user_id = :userId
+                  AND category_id IS NOT DISTINCT FROM CAST(:categoryId AS UUID)
+                  AND type = CAST(:type AS type_enum)
+            """, nativeQuery = true)
+    void deleteCategory(@Param("userId") UUID userId,
+                        @Param("categoryId") UUID categoryId,
+                        @Param("type") String type);
+
+    @Modifying
+    @Query(value = "DELETE FROM transaction_daily_rollup WHERE user_id = :userId", nativeQuery = true)
+    void deleteAllByUser(@Param("userId") UUID userId);
+
+    @Modifying
+    @Query(value = """
+                INSERT INTO transaction_daily_rollup (id, user_id, rollup_date, type, category_id, cashbox_id, amount, transaction_count)
+                SELECT gen_random_uuid(), user_id, transaction_date, type, category_id, cashbox_id, SUM(amount), COUNT(*)
+                FROM transaction
+                WHERE user_id = :userId
+                GROUP BY user_id, transaction_date, type, category_id, cashbox_id
+            """, nativeQuery = true)
+    void insertAllFromTransactions(@Param("userId") UUID userId);
+
+    String RANGE_ROLLUPS = """
+                (SELECT d.type, d.category_id, d.cashbox_id, d.amount
+                 FROM transaction_daily_rollup d
+                 WHERE d.user_id = :userId
+                   AND ((d.rollup_date >= :from AND d.rollup_date < :monthsFrom)
+                     OR (d.rollup_date >= :monthsTo AND d.rollup_date < :toExclusive))
+                 UNION ALL
+                 SELECT m.type, m.category_id, m.cashbox_id, m.amount
+                 FROM transaction_monthly_rollup m
+                 WHERE m.user_id = :userId
+                   AND m.month_start >= :monthsFrom AND m.month_start < :monthsTo) r
+            """;
+
+    @Query(value = "SELECT CAST(r.type AS VARCHAR), COALESCE(SUM(r.amount), 0) " +
+            "FROM " + RANGE_ROLLUPS +
+            "GROUP BY r.type",
+            nativeQuery = true)
+    List<Object[]> getBalanceStats(@Param("userId") UUID userId,
+                                   @Param("from") LocalDate from,
+                                   @Param("monthsFrom") LocalDate monthsFrom,
+                                   @Param("monthsTo") LocalDate monthsTo,
+                                   @Param("toExclusive") LocalDate toExclusive);
+
+    @Query(value = "SELECT CAST(r.type AS VARCHAR), COALESCE(c.name, 'Other') AS category_name, c.icon AS category_icon, " +
+            "COALESCE(SUM(r.amount), 0) AS total_amount " +
+            "FROM " + RANGE_ROLLUPS +
+            "LEFT JOIN category c ON r.category_id = c.id " +
+            "GROUP BY r.type, category_name, category_icon " +
+            "ORDER BY total_amount DESC",
+            nativeQuery = true)
+    List<Object[]> getCategoriesStats(@Param("userId") UUID userId,
+                                      @Param("from") LocalDate from,
+                                      @Param("monthsFrom") LocalDate monthsFrom,
+                                      @Param("monthsTo") LocalDate monthsTo,
+                                      @Param("toExclusive") LocalDate toExclusive);
+
+    @Query(value = "SELECT CAST(r.type AS VARCHAR), COALESCE(c.name, 'Other') AS cashbox_name, COALESCE(SUM(r.amount), 0) AS total_amount " +
+            "FROM " + RANGE_ROLLUPS +
+            "LEFT JOIN cashbox c ON r.cashbox_id = c.id " +
+            "GROUP BY r.type, cashbox_name " +
+            "ORDER BY total_amount DESC",
+            nativeQuery = true)
+    List<Object[]> getCashboxStats(@Param("userId") UUID userId,
+                                   @Param("from") LocalDate from,
+                                   @Param("monthsFrom") LocalDate monthsFrom,
+                                   @Param("monthsTo") LocalDate monthsTo,
+                                   @Param("toExclusive") LocalDate toExclusive);
+
+    @Query(value = "SELECT DISTINCT DATE_PART('year', r.rollup_date) AS year " +
+            "FROM transaction_daily_rollup r " +
+            "WHERE r.user_id = :userId " +
+            "ORDER BY year ASC",
+            nativeQuery = true)
+    List<Integer> getTransactionHistoryPeriods(@Param("userId") UUID userId);
+
+    @Query("SELECT EXTRACT(DAY FROM r.rollupDate) AS day, r.type, SUM(r.amount) " +
+            "FROM TransactionDailyRollup r " +
+            "WHERE r.userId = :userId " +
+            "AND r.rollupDate >= :from AND r.rollupDate < :to " +
+            "GROUP BY day, r.type")
+    List<Object[]> sumAmountByRangeGroupedByDayAndType(@Param("userId") UUID userId,
+                                                       @Param("from") LocalDate from,
+                                                       @Param("to") LocalDate to);
+}
@@ -0,0 +1,167 @@
+package com.onyshkiv.finance.repository;
+
+import com.onyshkiv.finance.model.dto.TransactionAmountDto;
+import com.onyshkiv.finance.model.entity.Cashbox;
+import com.onyshkiv.finance.model.entity.Category;
+import com.onyshkiv.finance.model.entity.Currency;
+import com.onyshkiv.finance.model.entity.Transaction;
+import com.onyshkiv.finance.model.entity.TransactionType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+@Repository
+public class TransactionJdbcRepository {
+    private static final String SELECT_AMOUNTS = """
+            SELECT id, transaction_date, amount, base_amount, base_currency, coefficient, coefficient_currency
+            FROM transaction
+            WHERE user_id = ?
+            ORDER BY transaction_date, id""";
+    private static final String UPDATE_AMOUNT = "UPDATE transaction SET amount = ?, updated_at = ? WHERE id = ?";
+    private static final String INSERT_IF_ABSENT = """
+            INSERT INTO transaction (id, user_id, category_id, type, amount, description, transaction_date, base_amount,
+                                     base_currency, coefficient, coefficient_currency, created_at, cashbox_id, external_id)
+            VALUES (?, ?, ?, CAST(? AS type_enum), ?, ?, ?, ?, CAST(? AS currency_enum), ?, CAST(? AS currency_enum), ?, ?, ?)
+            ON CONFLICT (external_id) WHERE external_id IS NOT NULL DO NOTHING""";
+    private static final String SELECT_WITHOUT_EXTERNAL_ID = """
+            SELECT type, transaction_date, base_amount
+            FROM transaction
+            WHERE cashbox_id = ? AND transaction_date >= ? AND transaction_date <= ? AND external_id IS NULL""";
+    private static final String MOVE_CATEGORY_CHUNK = """
+            WITH chunk AS (
+                SELECT id FROM transaction
+                WHERE user_id = ? AND %s AND type = CAST(? AS type_enum) AND id > ?
+                ORDER BY id
+                LIMIT ?
+                FOR UPDATE
+            )
+            UPDATE transaction t SET category_id = ?, updated_at = ?
+            FROM chunk
+            WHERE t.id = chunk.id
+            RETURNING t.id, t.transaction_date, t.amount, t.cashbox_id""";
+    private static final UUID MIN_ID = new UUID(0L, 0L);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public TransactionJdbcRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public List<TransactionAmountDto> findAllAmountsByUserId(UUID userId) {
+        return jdbcTemplate.query(SELECT_AMOUNTS, (rs, rowNum) -> new TransactionAmountDto(
+                rs.getObject("id", UUID.class),
+                rs.getObject("transaction_date", LocalDate.class),
+                rs.getBigDecimal("amount"),
+                rs.getBigDecimal("base_amount"),
+                Currency.valueOf(rs.getString("base_currency")),
+                rs.getBigDecimal("coefficient"),
+                rs.getString("coefficient_currency") != null ? Currency.valueOf(rs.getString("coefficient_currency")) : null
+        ), userId);
+    }
+
+    /**
+     * @return {@code false} if a transaction with the same external id is already stored
+     */
+    public boolean insertIfAbsent(Transaction transaction) {
+        return jdbcTemplate.update(INSERT_IF_ABSENT, insertParameters(transaction)) > 0;
+    }
+
+    /**
+     * Batched variant of {@link #insertIfAbsent(Transaction)}.
+     *
+     * @return transactions that were actually inserted, in input order
+     */
+    public List<Transaction> insertAllIfAbsent(List<Transaction> transactions) {
+        List<Object[]> parameters = transactions.stream().map(TransactionJdbcRepository::insertParameters).toList();
+        int[] counts = jdbcTemplate.batchUpdate(INSERT_IF_ABSENT, parameters);
+        List<Transaction> inserted = new ArrayList<>(transactions.size());
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                inserted.add(transactions.get(i));
+            }
+        }
+        return inserted;
+    }
+
+    /**
+     * @return transactions of the cashbox dated between {@code from} and {@code to} inclusive that have no external id,
+     * carrying only their type, date and base amount
+     */
+    public List<Transaction> findWithoutExternalId(UUID cashboxId, LocalDate from, LocalDate to) {
+        return jdbcTemplate.query(SELECT_WITHOUT_EXTERNAL_ID, (rs, rowNum) -> Transaction.builder()
+                .type(TransactionType.valueOf(rs.getString("type")))
+                .transactionDate(rs.getObject("transaction_date", LocalDate.class))
+                .baseAmount(rs.getBigDecimal("base_amount"))
+                .build(), cashboxId, from, to);
+    }
+
+    /**
+     * Moves the next chunk of the user's transactions of {@code categoryIdFrom} (uncategorized when null) to
+     * {@code categoryIdTo}, taking rows in id order after {@code afterId}.
+     *
+     * @return moved transactions carrying the fields the stats rollups are keyed by, still with the old category
+     */
+    public List<Transaction> moveCategoryChunk(UUID userId, UUID categoryIdFrom, UUID categoryIdTo, TransactionType type,
+                                               UUID afterId, int chunkSize) {
+        String sql = String.format(MOVE_CATEGORY_CHUNK, categoryIdFrom == null ? "category_id IS NULL" : "category_id = ?");
+        List<Object> parameters = new ArrayList<>();
+        parameters.add(userId);
+        if (categoryIdFrom != null) {
+            parameters.add(categoryIdFrom);
+        }
+        parameters.add(type.name());
+        parameters.add(afterId == null ? MIN_ID : afterId);
+        parameters.add(chunkSize);
+        parameters.add(categoryIdTo);
+        parameters.add(Timestamp.from(OffsetDateTime.now().toInstant()));
+        return jdbcTemplate.query(sql, (rs, rowNum) -> Transaction.builder()
+                .id(rs.getObject("id", UUID.class))
+                .userId(userId)
+                .type(type)
+                .category(categoryIdFrom != null ? new Category(categoryIdFrom) : null)
+                .cashbox(rs.getObject("cashbox_id") != null ? Cashbox.builder().id(rs.getObject("cashbox_id", UUID.class)).build() : null)
+                .transactionDate(rs.getObject("transaction_date", LocalDate.class))
+                .amount(rs.getBigDecimal("amount"))
+                .build(), parameters.toArray());
+    }
+
+    private static Object[] insertParameters(Transaction transaction) {
+        if (transaction.getCreatedAt() == null) {
+            transaction.setCreatedAt(OffsetDateTime.now());
+        }
+        return new Object[]{
+                transaction.getId(),
+                transaction.getUserId(),
+                transaction.getCategory() != null ? transaction.getCategory().getId() : null,
+                transaction.getType().name(),
+                transaction.getAmount(),
+                transaction.getDescription(),
+                transaction.getTransactionDate(),
+                transaction.getBaseAmount(),
+                transaction.getBaseCurrency().name(),
+                transaction.getCoefficient(),
+                transaction.getCoefficientCurrency() != null ? transaction.getCoefficientCurrency().name() : null,
+                Timestamp.from(transaction.getCreatedAt().toInstant()),
+                transaction.getCashbox() != null ? transaction.getCashbox().getId() : null,
+                transaction.getExternalId()};
+    }
+
+    public void updateAmounts(List<Map.Entry<UUID, BigDecimal>> amounts) {
+        Timestamp now = Timestamp.from(OffsetDateTime.now().toInstant());
+        jdbcTemplate.batchUpdate(UPDATE_AMOUNT, amounts, amounts.size(), (ps, amount) -> {
+            ps.setBigDecimal(1, amount.getValue());
+            ps.setTimestamp(2, now);
+            ps.setObject(3, amount.getKey());
+        });
+    }
+}
@@ -0,0 +1,107 @@
+package com.onyshkiv.finance.repository;
+
+import com.onyshkiv.finance.model.entity.TransactionMonthlyRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface TransactionMonthlyRollupRepository extends JpaRepository<TransactionMonthlyRollup, UUID> {
+    @Modifying
+    @Query(value = """
+                INSERT INTO transaction_monthly_rollup (id, user_id, month_start, type, category_id, cashbox_id, amount, transaction_count)
+                VALUES (gen_random_uuid(), :userId, :monthStart, CAST(:type AS type_enum), CAST(:categoryId AS UUID), CAST(:cashboxId AS UUID),
+                        :amount, :transactionCount)
+                ON CONFLICT (user_id, month_start, type,
+                             COALESCE(category_id, CAST('00000000-0000-0000-0000-000000000000' AS UUID)),
+                             COALESCE(cashbox_id, CAST('00000000-0000-0000-0000-000000000000' AS UUID)))
+                DO UPDATE SET
+                    amount = transaction_monthly_rollup.amount + EXCLUDED.amount,
+                    transaction_count = transaction_monthly_rollup.transaction_count + EXCLUDED.transaction_count
+            """, nativeQuery = true)
+    void applyDelta(@Param("userId") UUID userId,
+                    @Param("monthStart") LocalDate monthStart,
+                    @Param("type") String type,
+                    @Param("categoryId") UUID categoryId,
+                    @Param("cashboxId") UUID cashboxId,
+                    @Param("amount") BigDecimal amount,
+                    @Param("transactionCount") int transactionCount);
+
+    @Modifying
+    @Query(value = """
+                DELETE FROM transaction_monthly_rollup
+                WHERE user_id = :userId
+                  AND month_start = :monthStart
+                  AND type = CAST(:type AS type_enum)
+                  AND category_id IS NOT DISTINCT FROM CAST(:categoryId AS UUID)
+                  AND cashbox_id IS NOT DISTINCT FROM CAST(:cashboxId AS UUID)
+                  AND transaction_count <= 0
+            """, nativeQuery = true)
+    void deleteIfEmpty(@Param("userId") UUID userId,
+                       @Param("monthStart") LocalDate monthStart,
+                       @Param("type") String type,
+                       @Param("categoryId") UUID categoryId,
+                       @Param("cashboxId") UUID cashboxId);
+
+    @Modifying
+    @Query(value = """
+                INSERT INTO transaction_monthly_rollup (id, user_id, month_start, type, category_id, cashbox_id, amount, transaction_count)
+                SELECT gen_random_uuid(), user_id, month_start, type, CAST(:categoryIdTo AS UUID), cashbox_id, amount, transaction_count
+                FROM transaction_monthly_rollup
+                WHERE user_id = :userId
+                  AND category_id IS NOT DISTINCT FROM CAST(:categoryIdFrom AS UUID)
+                  AND type = CAST(:type AS type_enum)
+                ON CONFLICT (user_id, month_start, type,
+                             COALESCE(category_id, CAST('00000000-0000-0000-0000-000000000000' AS UUID)),
+                             COALESCE(cashbox_id, CAST('00000000-0000-0000-0000-000000000000' AS UUID)))
+                DO UPDATE SET
+                    amount = transaction_monthly_rollup.amount + EXCLUDED.amount,
+                    transaction_count = transaction_monthly_rollup.transaction_count + EXCLUDED.transaction_count
+            """, nativeQuery = true)
+    void mergeCategory(@Param("userId") UUID userId,
+                       @Param("categoryIdFrom") UUID categoryIdFrom,
+                       @Param("categoryIdTo") UUID categoryIdTo,
+                       @Param("type") String type);
+
+    @Modifying
+    @Query(value = """
+                DELETE FROM transaction_monthly_rollup
+                WHERE user_id = :userId
+                  AND category_id IS NOT DISTINCT FROM CAST(:categoryId AS UUID)
+                  AND type = CAST(:type AS type_enum)
+            """, nativeQuery = true)
+    void deleteCategory(@Param("userId") UUID userId,
+                        @Param("categoryId") UUID categoryId,
+                        @Param("type") String type);
+
+    @Modifying
+    @Query(value = "DELETE FROM transaction_monthly_rollup WHERE user_id = :userId", nativeQuery = true)
+    void deleteAllByUser(@Param("userId") UUID userId);
+
+    @Modifying
+    @Query(value = """
+                INSERT INTO transaction_monthly_rollup (id, user_id, month_start, type, category_id, cashbox_id, amount, transaction_count)
+                SELECT gen_random_uuid(), user_id, CAST(DATE_TRUNC('month', transaction_date) AS DATE), type, category_id, cashbox_id,
+                       SUM(amount), COUNT(*)
+                FROM transaction
+                WHERE user_id = :userId
+                GROUP BY user_id, CAST(DATE_TRUNC('month', transaction_date) AS DATE), type, category_id, cashbox_id
+            """, nativeQuery = true)
+    void insertAllFromTransactions(@Param("userId") UUID userId);
+
+    @Query("SELECT EXTRACT(MONTH FROM r.monthStart) AS month, r.type, SUM(r.amount) " +
+            "FROM TransactionMonthlyRollup r " +
+            "WHERE r.userId = :userId " +
+            "AND r.monthStart >= :from AND r.monthStart < :to " +
+            "GROUP BY month, r.type")
+    List<Object[]> sumAmountByRangeGroupedByMonthAndType(@Param("userId") UUID userId,
+                                                         @Param("from") LocalDate from,
+                                                         @Param("to") LocalDate to);
+}
@@ -1,14 +1,51 @@
 package com.onyshkiv.finance.repository;
 
 import com.onyshkiv.finance.model.entity.Transfer;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.util.List;
 import java.util.UUID;
 
 @Repository
 public interface TransferRepository extends JpaRepository<Transfer, UUID> {
+    @Query("SELECT tr FROM Transfer tr " +
+            "JOIN FETCH tr.fromCashbox " +
+            "JOIN FETCH tr.toCashbox " +
+            "WHERE tr.fromCashbox.id = :cashboxId " +
+            "ORDER BY tr.date DESC, tr.id DESC")
+    List<Transfer> findOutgoingTransfersFirstPage(@Param("cashboxId") UUID cashboxId, Limit limit);
 
+    @Query("SELECT tr FROM Transfer tr " +
+            "JOIN FETCH tr.fromCashbox " +
+            "JOIN FETCH tr.toCashbox " +
+            "WHERE tr.toCashbox.id = :cashboxId " +
+            "ORDER BY tr.date DESC, tr.id DESC")
+    List<Transfer> findIncomingTransfersFirstPage(@Param("cashboxId") UUID cashboxId, Limit limit);
 
-}
+    @Query("SELECT tr FROM Transfer tr " +
+            "JOIN FETCH tr.fromCashbox " +
+            "JOIN FETCH tr.toCashbox " +
+            "WHERE tr.fromCashbox.id = :cashboxId " +
+            "AND (tr.date < :cursorDate OR (tr.date = :cursorDate AND tr.id < :cursorId)) " +
+            "ORDER BY tr.date DESC, tr.id DESC")
+    List<Transfer> findOutgoingTransfersAfterCursor(@Param("cashboxId") UUID cashboxId,
+                                                    @Param("cursorDate") LocalDate cursorDate,
+                                                    @Param("cursorId") UUID cursorId,
+                                                    Limit limit);
 
+    @Query("SELECT tr FROM Transfer tr " +
+            "JOIN FETCH tr.fromCashbox " +
+            "JOIN FETCH tr.toCashbox " +
+            "WHERE tr.toCashbox.id = :cashboxId " +
+            "AND (tr.date < :cursorDate OR (tr.date = :cursorDate AND tr.id < :cursorId)) " +
+            "ORDER BY tr.date DESC, tr.id DESC")
+    List<Transfer> findIncomingTransfersAfterCursor(@Param("cashboxId") UUID cashboxId,
+                                                    @Param("cursorDate") LocalDate cursorDate,
+                                                    @Param("cursorId") UUID cursorId,
+                                                    Limit limit);
+}
@@ -1,10 +1,14 @@
 package com.onyshkiv.finance.repository;
 
 import com.onyshkiv.finance.model.entity.User;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -12,4 +16,25 @@ public interface UserRepository extends JpaRepository<User, UUID> {
     Optional<User> findByLogin(String login);
 
     Optional<User> findByEmail(String email);
+
+    /**
+     * Locks the user against writers that read its currency through {@link #findCurrenciesForShare}.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT u FROM User u WHERE u.id = :id")
+    Optional<User> findByIdForUpdate(@Param("id") UUID id);
+
+    /**
+     * Reads the base currency of the users and keeps it from changing until the caller's transaction ends,
+     * so amounts written in that currency cannot be missed by a concurrent base currency change.
+     */
+    @Query(value = "SELECT id, CAST(currency AS VARCHAR) AS currency FROM \"user\" WHERE id IN (:ids) ORDER BY id FOR SHARE",
+            nativeQuery = true)
+    List<UserCurrency> findCurrenciesForShare(@Param("ids") Collection<UUID> ids);
+
+    interface UserCurrency {
+        UUID getId();
+
+        String getCurrency();
+    }
 }
@@ -1,5 +1,7 @@
 package com.onyshkiv.finance.security;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.onyshkiv.finance.model.entity.User;
 import com.onyshkiv.finance.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -8,9 +10,17 @@ import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+
+import static com.onyshkiv.finance.util.TransactionHooks.afterCommit;
+
 @Service
 public class CustomUserDetailsService implements UserDetailsService {
     private final UserRepository userRepository;
+    private final Cache<String, CustomUserDetails> principals = CacheBuilder.newBuilder()
+            .maximumSize(10_000)
+            .expireAfterWrite(Duration.ofMinutes(5))
+            .build();
 
     @Autowired
     public CustomUserDetailsService(UserRepository userRepository) {
@@ -19,8 +29,19 @@ public class CustomUserDetailsService implements UserDetailsService {
 
     @Override
     public UserDetails loadUserByUsername(String login) throws UsernameNotFoundException {
+        CustomUserDetails cached = principals.getIfPresent(login);
+        if (cached != null) {
+            return cached;
+        }
         User user = userRepository.findByLogin(login)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found with login " + login));
-        return new CustomUserDetails(user);
+        CustomUserDetails userDetails = new CustomUserDetails(user);
+        principals.put(login, userDetails);
+        return userDetails;
+    }
+
+    public void evict(String login) {
+        principals.invalidate(login);
+        afterCommit(() -> principals.invalidate(login));
     }
 }
@@ -1,12 +1,18 @@
 package com.onyshkiv.finance.service;
 
+import com.onyshkiv.finance.model.dto.request.BatchTransferRequest;
 import com.onyshkiv.finance.model.dto.request.CashboxRequest;
 import com.onyshkiv.finance.model.dto.request.TransferRequest;
+import com.onyshkiv.finance.model.dto.response.CashboxActivityPageResponse;
+import com.onyshkiv.finance.model.dto.response.CashboxBalanceHistoryResponse;
+import com.onyshkiv.finance.model.dto.response.CashboxBalanceResponse;
 import com.onyshkiv.finance.model.dto.response.CashboxResponse;
 import com.onyshkiv.finance.model.dto.response.ExtendedCashboxResponse;
 import com.onyshkiv.finance.model.dto.response.TransferResponse;
+import com.onyshkiv.finance.model.entity.BalanceHistoryGranularity;
 import com.onyshkiv.finance.model.entity.Cashbox;
 
+import java.time.LocalDate;
 import java.util.List;
 import java.util.UUID;
 
@@ -20,11 +26,21 @@ public interface CashboxService {
 
     TransferResponse transfer(TransferRequest transferRequest);
 
+    List<TransferResponse> transferBatch(BatchTransferRequest batchTransferRequest);
+
     List<CashboxResponse> findCashboxes();
 
     ExtendedCashboxResponse findById(UUID id);
 
+    CashboxActivityPageResponse getCashboxActivity(UUID id, String cursor, Integer size);
+
+    CashboxBalanceResponse getBalance(UUID id, LocalDate date);
+
+    CashboxBalanceHistoryResponse getBalanceHistory(UUID id, LocalDate from, LocalDate to, BalanceHistoryGranularity granularity);
+
     void markDeleted(UUID id);
 
     CashboxResponse update(UUID id, CashboxRequest cashboxRequest);
+
+    void snapshotBalances();
 }
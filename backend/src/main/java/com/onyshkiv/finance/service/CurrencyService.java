@@ -4,10 +4,13 @@ import com.onyshkiv.finance.model.entity.Currency;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.Collection;
 
 public interface CurrencyService {
     BigDecimal convert(BigDecimal amount, Currency currencyFrom, Currency currencyTo, LocalDate dateOfTransaction);
 
     BigDecimal getExchangeRate(Currency currencyFrom, Currency currencyTo, LocalDate dateOfTransaction);
 
+    void prefetchRates(Collection<LocalDate> dates);
+
 }
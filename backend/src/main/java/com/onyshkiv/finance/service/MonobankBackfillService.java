@@ -0,0 +1,5 @@
+package com.onyshkiv.finance.service;
+
+public interface MonobankBackfillService {
+    void runDueBackfills();
+}
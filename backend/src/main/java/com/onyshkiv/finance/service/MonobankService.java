@@ -3,6 +3,7 @@ package com.onyshkiv.finance.service;
 import com.onyshkiv.finance.model.dto.MonobankAuthDto;
 import com.onyshkiv.finance.model.dto.monobank.MonobankAccountDto;
 import com.onyshkiv.finance.model.dto.monobank.MonobankCardResponse;
+import com.onyshkiv.finance.model.dto.monobank.StatementItemDetailsDto;
 import com.onyshkiv.finance.model.dto.monobank.StatementItemDto;
 
 import java.util.List;
@@ -14,6 +15,12 @@ public interface MonobankService {
 
     void parseAndSaveTransactionWebhook(StatementItemDto statementItemDto);
 
+    void parseAndSaveTransactionWebhooks(List<StatementItemDto> statementItems);
+
+    int importStatementItems(String accountId, List<StatementItemDetailsDto> statementItems);
+
+    List<StatementItemDetailsDto> getStatement(String requestId, String accountId, long from, long to);
+
     void monitorAccount(String accountId);
     void unmonitorAccount(String accountId);
 
@@ -0,0 +1,11 @@
+package com.onyshkiv.finance.service;
+
+import com.onyshkiv.finance.model.dto.monobank.StatementItemDto;
+
+public interface MonobankWebhookInboxService {
+    void enqueue(StatementItemDto statementItemDto);
+
+    void drain();
+
+    void purgeProcessed();
+}
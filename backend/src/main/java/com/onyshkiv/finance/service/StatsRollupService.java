@@ -0,0 +1,21 @@
+package com.onyshkiv.finance.service;
+
+import com.onyshkiv.finance.model.entity.Transaction;
+import com.onyshkiv.finance.model.entity.TransactionType;
+
+import java.util.Collection;
+import java.util.UUID;
+
+public interface StatsRollupService {
+    void addTransaction(Transaction transaction);
+
+    void addTransactions(Collection<Transaction> transactions);
+
+    void removeTransaction(Transaction transaction);
+
+    void removeTransactions(Collection<Transaction> transactions);
+
+    void moveCategory(UUID userId, UUID categoryIdFrom, UUID categoryIdTo, TransactionType transactionType);
+
+    void rebuildUserRollups(UUID userId);
+}
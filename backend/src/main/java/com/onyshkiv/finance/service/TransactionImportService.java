@@ -0,0 +1,12 @@
+package com.onyshkiv.finance.service;
+
+import com.onyshkiv.finance.model.dto.response.TransactionImportResponse;
+import com.onyshkiv.finance.model.entity.TransactionImportFormat;
+import org.springframework.core.io.InputStreamSource;
+
+import java.io.IOException;
+import java.util.UUID;
+
+public interface TransactionImportService {
+    TransactionImportResponse importTransactions(UUID cashboxId, TransactionImportFormat format, InputStreamSource source) throws IOException;
+}
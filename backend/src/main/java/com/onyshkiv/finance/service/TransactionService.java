@@ -1,10 +1,14 @@
 package com.onyshkiv.finance.service;
 
 import com.onyshkiv.finance.model.dto.TransactionDto;
+import com.onyshkiv.finance.model.dto.response.TransactionPageResponse;
 import com.onyshkiv.finance.model.entity.Currency;
 import com.onyshkiv.finance.model.entity.Transaction;
 import com.onyshkiv.finance.model.entity.TransactionType;
+import com.onyshkiv.finance.util.CurrencyChangeJob;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
@@ -29,5 +33,11 @@ public interface TransactionService {
 
     List<TransactionDto> getUserTransactionsByDateRange(LocalDate from, LocalDate to);
 
-    void updateAmountAfterUserBaseCurrencyChange(Currency currencyToConvert);
+    TransactionPageResponse getUserTransactionsPage(LocalDate from, LocalDate to, TransactionType transactionType, String cursor, Integer size);
+
+    void streamUserTransactions(LocalDate from, LocalDate to, TransactionType transactionType, OutputStream outputStream) throws IOException;
+
+    void prefetchRatesForBaseCurrencyChange(UUID userId, Currency currencyToConvert);
+
+    void updateAmountAfterUserBaseCurrencyChange(UUID userId, Currency currencyToConvert, CurrencyChangeJob job);
 }
@@ -1,7 +1,12 @@
 package com.onyshkiv.finance.service;
 
+import com.onyshkiv.finance.model.dto.response.CurrencyChangeJobResponse;
 import com.onyshkiv.finance.model.entity.Currency;
 
+import java.util.UUID;
+
 public interface UserService {
-    void changeUserBaseCurrency(Currency currencyToConvert);
+    CurrencyChangeJobResponse changeUserBaseCurrency(Currency currencyToConvert);
+
+    CurrencyChangeJobResponse getCurrencyChangeJob(UUID jobId);
 }
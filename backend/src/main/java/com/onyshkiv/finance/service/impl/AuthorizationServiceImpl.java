@@ -12,6 +12,7 @@ import com.onyshkiv.finance.model.entity.PasswordResetToken;
 import com.onyshkiv.finance.model.entity.User;
 import com.onyshkiv.finance.repository.PasswordResetTokenRepository;
 import com.onyshkiv.finance.repository.UserRepository;
+import com.onyshkiv.finance.security.CustomUserDetailsService;
 import com.onyshkiv.finance.security.JwtUtil;
 import com.onyshkiv.finance.service.AuthorizationService;
 import com.onyshkiv.finance.service.CashboxService;
@@ -119,12 +120,13 @@ private static final String HTML_CONTENT = """
     private final CashboxService cashboxService;
     private final PasswordResetTokenRepository tokenRepository;
     private final JavaMailSender mailSender;
+    private final CustomUserDetailsService userDetailsService;
 
     @Value("${frontend.url}")
     private String frontendUrl;
 
     @Autowired
-    public AuthorizationServiceImpl(AuthenticationProvider authenticationProvider, JwtUtil jwtUtil, PasswordEncoder passwordEncoder, UserRepository userRepository, ApplicationMapper applicationMapper, CashboxService cashboxService, PasswordResetTokenRepository tokenRepository, JavaMailSender mailSender) {
+    public AuthorizationServiceImpl(AuthenticationProvider authenticationProvider, JwtUtil jwtUtil, PasswordEncoder passwordEncoder, UserRepository userRepository, ApplicationMapper applicationMapper, CashboxService cashboxService, PasswordResetTokenRepository tokenRepository, JavaMailSender mailSender, CustomUserDetailsService userDetailsService) {
         this.authenticationProvider = authenticationProvider;
         this.jwtUtil = jwtUtil;
         this.passwordEncoder = passwordEncoder;
@@ -133,6 +135,7 @@ private static final String HTML_CONTENT = """
         this.cashboxService = cashboxService;
         this.tokenRepository = tokenRepository;
         this.mailSender = mailSender;
+        this.userDetailsService = userDetailsService;
     }
 
     @Override
@@ -259,6 +262,7 @@ public void sendResetLink(String email) {
 
         user.setPassword(passwordEncoder.encode(newPassword));
         userRepository.save(user);
+        userDetailsService.evict(user.getLogin());
 
         tokenRepository.delete(resetToken);
     }
@@ -3,49 +3,87 @@ package com.onyshkiv.finance.service.impl;
 import com.onyshkiv.finance.exception.DuplicationException;
 import com.onyshkiv.finance.exception.NotFoundException;
 import com.onyshkiv.finance.exception.UnsupportedException;
+import com.onyshkiv.finance.model.dto.CashboxBalanceCheckpointDto;
+import com.onyshkiv.finance.model.dto.CashboxLedgerEntryDto;
+import com.onyshkiv.finance.model.dto.request.BatchTransferRequest;
 import com.onyshkiv.finance.model.dto.request.CashboxRequest;
 import com.onyshkiv.finance.model.dto.request.TransferRequest;
+import com.onyshkiv.finance.model.dto.response.CashboxActivityPageResponse;
+import com.onyshkiv.finance.model.dto.response.CashboxBalanceHistoryResponse;
+import com.onyshkiv.finance.model.dto.response.CashboxBalancePointResponse;
+import com.onyshkiv.finance.model.dto.response.CashboxBalanceResponse;
+import com.onyshkiv.finance.model.dto.response.CashboxActivityResponse;
 import com.onyshkiv.finance.model.dto.response.CashboxResponse;
 import com.onyshkiv.finance.model.dto.response.ExtendedCashboxResponse;
 import com.onyshkiv.finance.model.dto.response.TransferResponse;
+import com.onyshkiv.finance.model.entity.BalanceHistoryGranularity;
 import com.onyshkiv.finance.model.entity.Cashbox;
+import com.onyshkiv.finance.model.entity.CashboxLedgerEntryType;
 import com.onyshkiv.finance.model.entity.Currency;
 import com.onyshkiv.finance.model.entity.Transfer;
+import com.onyshkiv.finance.repository.CashboxLedgerRepository;
 import com.onyshkiv.finance.repository.CashboxRepository;
+import com.onyshkiv.finance.repository.TransactionRepository;
 import com.onyshkiv.finance.repository.TransferRepository;
 import com.onyshkiv.finance.security.SecurityContextHelper;
 import com.onyshkiv.finance.service.CashboxService;
-import com.onyshkiv.finance.service.CurrencyService;
 import com.onyshkiv.finance.util.ApplicationMapper;
+import com.onyshkiv.finance.util.KeysetCursor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.OffsetDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.TreeMap;
 import java.util.UUID;
 
 @Service
 @Slf4j
 @Transactional(readOnly = true)
 public class CashboxServiceImpl implements CashboxService {
+    private static final int DEFAULT_ACTIVITY_PAGE_SIZE = 20;
+    private static final int MAX_ACTIVITY_PAGE_SIZE = 100;
+    private static final int MAX_BALANCE_HISTORY_DAYS = 3660;
+    private static final Comparator<CashboxActivityResponse> ACTIVITY_ORDER = Comparator
+            .comparing(CashboxActivityResponse::getDate, Comparator.reverseOrder())
+            .thenComparing((first, second) -> KeysetCursor.compareIds(second.getId(), first.getId()));
+
     private final CashboxRepository cashboxRepository;
     private final ApplicationMapper applicationMapper;
     private final SecurityContextHelper securityContextHelper;
-    private final CurrencyService currencyService;
     private final TransferRepository transferRepository;
+    private final TransactionRepository transactionRepository;
+    private final CashboxLedgerRepository cashboxLedgerRepository;
+
+    @Value("${cashbox.ledger.snapshot-min-entries:1}")
+    private int snapshotMinEntries;
+    @Value("${cashbox.ledger.checkpoint-interval-days:30}")
+    private int checkpointIntervalDays;
 
     @Autowired
-    public CashboxServiceImpl(CashboxRepository cashboxRepository, ApplicationMapper applicationMapper, SecurityContextHelper securityContextHelper, CurrencyService currencyService, TransferRepository transferRepository) {
+    public CashboxServiceImpl(CashboxRepository cashboxRepository, ApplicationMapper applicationMapper, SecurityContextHelper securityContextHelper, TransferRepository transferRepository, TransactionRepository transactionRepository,
+                              CashboxLedgerRepository cashboxLedgerRepository) {
         this.cashboxRepository = cashboxRepository;
         this.applicationMapper = applicationMapper;
         this.securityContextHelper = securityContextHelper;
-        this.currencyService = currencyService;
         this.transferRepository = transferRepository;
+        this.transactionRepository = transactionRepository;
+        this.cashboxLedgerRepository = cashboxLedgerRepository;
     }
 
     @Transactional
@@ -74,43 +112,199 @@ public class CashboxServiceImpl implements CashboxService {
     @Override
     @Transactional
     public TransferResponse transfer(TransferRequest transferRequest) {
+        return applyTransfers(List.of(transferRequest)).get(0);
+    }
+
+    @Override
+    @Transactional
+    public List<TransferResponse> transferBatch(BatchTransferRequest batchTransferRequest) {
+        return applyTransfers(batchTransferRequest.getTransfers());
+    }
+
+    /**
+     * Applies all transfers atomically. The involved cashboxes are locked in id order, so concurrent transfers in
+     * opposite directions cannot deadlock, and a cashbox that loses money must cover its net debit before any
+     * ledger entry is appended, so no transfer can overdraw it.
+     */
+    private List<TransferResponse> applyTransfers(List<TransferRequest> transferRequests) {
         securityContextHelper.validateLoggedInUser();
-        BigDecimal fromAmount = transferRequest.getAmount();
-        Cashbox cashboxFrom = getCashbox(transferRequest.getCashboxFromId());
-        Cashbox cashboxTo = getCashbox(transferRequest.getCashboxToId());
-        if (cashboxFrom.getBalance().compareTo(fromAmount) < 0) {
-            throw new UnsupportedException("Cashbox " + cashboxFrom.getName() + " balance is not enough!");
+        Map<UUID, Cashbox> cashboxes = new HashMap<>();
+        Map<UUID, BigDecimal> balanceDeltas = new TreeMap<>();
+        List<CashboxLedgerEntryDto> ledgerEntries = new ArrayList<>(transferRequests.size() * 2);
+        List<Transfer> transfers = new ArrayList<>(transferRequests.size());
+        for (TransferRequest transferRequest : transferRequests) {
+            if (Objects.equals(transferRequest.getCashboxFromId(), transferRequest.getCashboxToId())) {
+                throw new UnsupportedException("Impossible to transfer to the same cashbox");
+            }
+            BigDecimal fromAmount = transferRequest.getAmount();
+            Cashbox cashboxFrom = cashboxes.computeIfAbsent(transferRequest.getCashboxFromId(), this::getCashbox);
+            Cashbox cashboxTo = cashboxes.computeIfAbsent(transferRequest.getCashboxToId(), this::getCashbox);
+            BigDecimal toAmount = fromAmount.multiply(transferRequest.getCurrencyCoefficient());
+
+            balanceDeltas.merge(cashboxFrom.getId(), fromAmount.negate(), BigDecimal::add);
+            balanceDeltas.merge(cashboxTo.getId(), toAmount, BigDecimal::add);
+            UUID transferId = UUID.randomUUID();
+            ledgerEntries.add(new CashboxLedgerEntryDto(cashboxFrom.getId(), fromAmount.negate(),
+                    CashboxLedgerEntryType.TRANSFER, transferId, transferRequest.getDate()));
+            ledgerEntries.add(new CashboxLedgerEntryDto(cashboxTo.getId(), toAmount,
+                    CashboxLedgerEntryType.TRANSFER, transferId, transferRequest.getDate()));
+            transfers.add(Transfer.builder()
+                    .id(transferId)
+                    .fromCashbox(cashboxFrom)
+                    .toCashbox(cashboxTo)
+                    .description(transferRequest.getDescription())
+                    .date(transferRequest.getDate())
+                    .fromAmount(fromAmount)
+                    .toAmount(toAmount)
+                    .build());
         }
-//        BigDecimal toAmount = transferAmount(fromAmount, cashboxFrom.getCurrency(), cashboxTo.getCurrency(), transferRequest.getDate());
-        BigDecimal toAmount = fromAmount.multiply(transferRequest.getCurrencyCoefficient());
 
-        cashboxFrom.setBalance(cashboxFrom.getBalance().subtract(fromAmount));
-        cashboxTo.setBalance(cashboxTo.getBalance().add(toAmount));
-        Transfer transfer = Transfer.builder()
-                .id(UUID.randomUUID())
-                .fromCashbox(cashboxFrom)
-                .toCashbox(cashboxTo)
-                .description(transferRequest.getDescription())
-                .date(transferRequest.getDate())
-                .fromAmount(fromAmount)
-                .toAmount(toAmount)
-                .build();
-        Transfer savedTransfer = transferRepository.save(transfer);
-        log.info("transfer created successfully: {}", transfer);
-        return applicationMapper.transferToTransferResponse(savedTransfer);
+        cashboxLedgerRepository.lockCashboxes(balanceDeltas.keySet());
+        Map<UUID, BigDecimal> balances = cashboxLedgerRepository.currentBalances(balanceDeltas.keySet());
+        balanceDeltas.forEach((cashboxId, delta) -> {
+            Cashbox cashbox = cashboxes.get(cashboxId);
+            BigDecimal balance = balances.getOrDefault(cashboxId, BigDecimal.ZERO).add(delta);
+            if (delta.signum() < 0 && balance.signum() < 0) {
+                throw new UnsupportedException("Cashbox " + cashbox.getName() + " balance is not enough!");
+            }
+            cashbox.setBalance(balance);
+        });
+        cashboxLedgerRepository.appendAll(ledgerEntries);
+
+        List<Transfer> savedTransfers = transferRepository.saveAll(transfers);
+        log.info("CashboxService applyTransfers : {} transfers created successfully", savedTransfers.size());
+        return savedTransfers.stream().map(applicationMapper::transferToTransferResponse).toList();
     }
 
     @Override
     public List<CashboxResponse> findCashboxes() {
         UUID loggedInUserId = securityContextHelper.getLoggedInUser().getId();
         List<Cashbox> userCashboxes = cashboxRepository.findAllUserCashboxes(loggedInUserId);
+        Map<UUID, BigDecimal> balances = cashboxLedgerRepository.currentBalances(userCashboxes.stream().map(Cashbox::getId).toList());
+        userCashboxes.forEach(cashbox -> cashbox.setBalance(balances.getOrDefault(cashbox.getId(), BigDecimal.ZERO)));
         return userCashboxes.stream().map(applicationMapper::cashboxToCashboxResponse).toList();
     }
 
     @Override
     public ExtendedCashboxResponse findById(UUID id) {
-        Cashbox cashbox = getCashbox(id);
-        return applicationMapper.cashboxToExtendedCashboxResponse(cashbox);
+        Cashbox cashbox = getUserCashbox(id);
+        cashbox.setBalance(cashboxLedgerRepository.currentBalance(id));
+        return applicationMapper.cashboxToExtendedCashboxResponse(cashbox, getCashboxActivityPage(id, null, null));
+    }
+
+    @Override
+    public CashboxActivityPageResponse getCashboxActivity(UUID id, String cursor, Integer size) {
+        getUserCashbox(id);
+        return getCashboxActivityPage(id, cursor, size);
+    }
+
+    private CashboxActivityPageResponse getCashboxActivityPage(UUID cashboxId, String cursor, Integer size) {
+        int pageSize = size == null ? DEFAULT_ACTIVITY_PAGE_SIZE : Math.max(1, Math.min(size, MAX_ACTIVITY_PAGE_SIZE));
+        Limit limit = Limit.of(pageSize + 1);
+
+        List<CashboxActivityResponse> activity = new ArrayList<>();
+        if (cursor == null) {
+            transactionRepository.findCashboxTransactionsFirstPage(cashboxId, limit)
+                    .forEach(transaction -> activity.add(applicationMapper.transactionToCashboxActivityResponse(transaction)));
+            transferRepository.findOutgoingTransfersFirstPage(cashboxId, limit)
+                    .forEach(transfer -> activity.add(applicationMapper.transferToCashboxActivityResponse(transfer)));
+            transferRepository.findIncomingTransfersFirstPage(cashboxId, limit)
+                    .forEach(transfer -> activity.add(applicationMapper.transferToCashboxActivityResponse(transfer)));
+        } else {
+            KeysetCursor position = KeysetCursor.decode(cursor);
+            transactionRepository.findCashboxTransactionsAfterCursor(cashboxId, position.date(), position.id(), limit)
+                    .forEach(transaction -> activity.add(applicationMapper.transactionToCashboxActivityResponse(transaction)));
+            transferRepository.findOutgoingTransfersAfterCursor(cashboxId, position.date(), position.id(), limit)
+                    .forEach(transfer -> activity.add(applicationMapper.transferToCashboxActivityResponse(transfer)));
+            transferRepository.findIncomingTransfersAfterCursor(cashboxId, position.date(), position.id(), limit)
+                    .forEach(transfer -> activity.add(applicationMapper.transferToCashboxActivityResponse(transfer)));
+        }
+        activity.sort(ACTIVITY_ORDER);
+
+        if (activity.size() <= pageSize) {
+            return new CashboxActivityPageResponse(activity, null);
+        }
+        List<CashboxActivityResponse> page = activity.subList(0, pageSize);
+        CashboxActivityResponse last = page.get(pageSize - 1);
+        return new CashboxActivityPageResponse(List.copyOf(page), new KeysetCursor(last.getDate(), last.getId()).encode());
+    }
+
+    /**
+     * Without a date returns the current balance; with a date returns the closing balance of that day.
+     */
+    @Override
+    @Transactional
+    public CashboxBalanceResponse getBalance(UUID id, LocalDate date) {
+        Cashbox cashbox = getUserCashbox(id);
+        BigDecimal balance = date == null
+                ? cashboxLedgerRepository.currentBalance(id)
+                : closingBalance(id, date);
+        return new CashboxBalanceResponse(id, cashbox.getCurrency(), date == null ? LocalDate.now() : date, balance);
+    }
+
+    /**
+     * Returns the closing balance of every day, week or month bucket of {@code [from, to]}, dated by the first day of
+     * the bucket inside the range. The opening balance comes from a checkpoint, so the query only sums the ledger
+     * entries of the requested range and of at most one checkpoint interval before it.
+     */
+    @Override
+    @Transactional
+    public CashboxBalanceHistoryResponse getBalanceHistory(UUID id, LocalDate from, LocalDate to, BalanceHistoryGranularity granularity) {
+        if (from.isAfter(to)) {
+            throw new UnsupportedException("Date from should be before date to");
+        }
+        if (ChronoUnit.DAYS.between(from, to) >= MAX_BALANCE_HISTORY_DAYS) {
+            throw new UnsupportedException("Balance history range should not exceed " + MAX_BALANCE_HISTORY_DAYS + " days");
+        }
+        Cashbox cashbox = getUserCashbox(id);
+        BigDecimal balance = closingBalance(id, from.minusDays(1));
+        Iterator<Map.Entry<LocalDate, BigDecimal>> deltas = cashboxLedgerRepository.dailyDeltas(id, from, to).entrySet().iterator();
+        Map.Entry<LocalDate, BigDecimal> delta = deltas.hasNext() ? deltas.next() : null;
+
+        List<CashboxBalancePointResponse> points = new ArrayList<>();
+        for (LocalDate bucket = granularity.bucketStart(from); !bucket.isAfter(to); bucket = granularity.nextBucketStart(bucket)) {
+            LocalDate nextBucket = granularity.nextBucketStart(bucket);
+            while (delta != null && delta.getKey().isBefore(nextBucket)) {
+                balance = balance.add(delta.getValue());
+                delta = deltas.hasNext() ? deltas.next() : null;
+            }
+            points.add(new CashboxBalancePointResponse(bucket.isBefore(from) ? from : bucket, balance));
+        }
+        return new CashboxBalanceHistoryResponse(id, cashbox.getCurrency(), granularity, points);
+    }
+
+    private BigDecimal closingBalance(UUID cashboxId, LocalDate date) {
+        LocalDate checkpointDate = LocalDate.ofEpochDay(Math.floorDiv(date.toEpochDay(), checkpointIntervalDays) * checkpointIntervalDays);
+        CashboxBalanceCheckpointDto checkpoint = checkpoint(cashboxId, checkpointDate);
+        return checkpoint.balance().add(cashboxLedgerRepository.sumBetween(cashboxId, checkpoint.date(), date));
+    }
+
+    /**
+     * Checkpoints are materialized lazily on past interval boundaries, starting from the closest earlier checkpoint.
+     * Back-dated ledger entries delete the checkpoints they invalidate, see {@link CashboxLedgerRepository#appendAll};
+     * a checkpoint that is going to be saved is computed under the checkpoint lock, after such appends have committed.
+     */
+    private CashboxBalanceCheckpointDto checkpoint(UUID cashboxId, LocalDate checkpointDate) {
+        Optional<CashboxBalanceCheckpointDto> latest = cashboxLedgerRepository.findLatestCheckpoint(cashboxId, checkpointDate);
+        if (latest.isPresent() && latest.get().date().equals(checkpointDate)) {
+            return latest.get();
+        }
+        boolean persist = checkpointDate.isBefore(LocalDate.now());
+        if (persist) {
+            cashboxLedgerRepository.lockCheckpoints(cashboxId);
+            latest = cashboxLedgerRepository.findLatestCheckpoint(cashboxId, checkpointDate);
+            if (latest.isPresent() && latest.get().date().equals(checkpointDate)) {
+                return latest.get();
+            }
+        }
+        BigDecimal base = latest.map(CashboxBalanceCheckpointDto::balance).orElse(BigDecimal.ZERO);
+        LocalDate baseDate = latest.map(CashboxBalanceCheckpointDto::date).orElse(null);
+        CashboxBalanceCheckpointDto checkpoint = new CashboxBalanceCheckpointDto(checkpointDate,
+                base.add(cashboxLedgerRepository.sumBetween(cashboxId, baseDate, checkpointDate)));
+        if (persist) {
+            cashboxLedgerRepository.saveCheckpoint(cashboxId, checkpoint);
+        }
+        return checkpoint;
     }
 
     @Override
@@ -118,7 +312,8 @@ public class CashboxServiceImpl implements CashboxService {
     public void markDeleted(UUID id) {
         securityContextHelper.validateLoggedInUser();
         Cashbox cashbox = getCashbox(id);
-        if (cashbox.getBalance().compareTo(BigDecimal.ZERO) != 0) {
+        cashboxLedgerRepository.lockCashboxes(List.of(id));
+        if (cashboxLedgerRepository.currentBalance(id).signum() != 0) {
             throw new UnsupportedException("Current cashbox have not 0 balance, please transfer balance to another cashbox to be able to delete cashbox");
         }
         cashbox.setDeletedAt(OffsetDateTime.now());
@@ -135,22 +330,15 @@ public class CashboxServiceImpl implements CashboxService {
             throw new DuplicationException("Cashbox with name " + cashbox.getName() + " already exists");
         }
         cashbox.setName(cashboxRequest.getName());
+        cashboxLedgerRepository.lockCashboxes(List.of(id));
+        BigDecimal adjustment = cashboxRequest.getBalance().subtract(cashboxLedgerRepository.currentBalance(id));
+        if (adjustment.signum() != 0) {
+            cashboxLedgerRepository.append(new CashboxLedgerEntryDto(id, adjustment, CashboxLedgerEntryType.ADJUSTMENT, null, LocalDate.now()));
+        }
         cashbox.setBalance(cashboxRequest.getBalance());
         return applicationMapper.cashboxToCashboxResponse(cashbox);
     }
 
-    private BigDecimal transferAmount(BigDecimal amount, Currency currencyFrom, Currency currencyTo, LocalDate transferDate) {
-        if (currencyFrom.equals(currencyTo)) {
-            return amount;
-        } else {
-            return currencyService.convert(
-                    amount,
-                    currencyFrom,
-                    currencyTo,
-                    transferDate);
-        }
-    }
-
     @Transactional
     @Override
     public CashboxResponse save(Cashbox cashbox) {
@@ -163,12 +351,31 @@ public class CashboxServiceImpl implements CashboxService {
             log.info("CashboxServiceImpl save : cashbox successfully saved restored from deleted : {}", cashboxFromDbOptional.get());
             return applicationMapper.cashboxToCashboxResponse(cashboxFromDbOptional.get());
         } else {
-            Cashbox savedCashbox = cashboxRepository.save(cashbox);
+            Cashbox savedCashbox = cashboxRepository.saveAndFlush(cashbox);
+            BigDecimal openingBalance = Optional.ofNullable(savedCashbox.getBalance()).orElse(BigDecimal.ZERO);
+            cashboxLedgerRepository.append(new CashboxLedgerEntryDto(savedCashbox.getId(), openingBalance,
+                    CashboxLedgerEntryType.OPENING, null, LocalDate.now()));
             log.info("CashboxServiceImpl save : cashbox successfully saved : {}", savedCashbox);
             return applicationMapper.cashboxToCashboxResponse(savedCashbox);
         }
     }
 
+    /**
+     * Folds settled ledger entries into the balance snapshots and copies the new balances into
+     * {@code cashbox.balance}, which is kept only as a cached value for queries that join cashboxes.
+     */
+    @Override
+    @Transactional
+    @Scheduled(fixedDelayString = "${cashbox.ledger.snapshot-interval-ms:60000}")
+    public void snapshotBalances() {
+        int refreshed = cashboxLedgerRepository.foldSnapshots(snapshotMinEntries);
+        if (refreshed < 0) {
+            log.info("CashboxService snapshotBalances : snapshots are being folded by another instance");
+        } else if (refreshed > 0) {
+            log.info("CashboxService snapshotBalances : refreshed {} cashbox balances", refreshed);
+        }
+    }
+
     @Override
     public Cashbox getCashbox(UUID id) {
         return cashboxRepository.findById(id).orElseThrow(() -> {
@@ -176,4 +383,17 @@ public class CashboxServiceImpl implements CashboxService {
             return new NotFoundException(String.format("Cashbox not found with id %s", id));
         });
     }
+
+    /**
+     * Cashboxes of other users are reported as missing, so their ids cannot be probed.
+     */
+    private Cashbox getUserCashbox(UUID id) {
+        Cashbox cashbox = getCashbox(id);
+        UUID loggedInUserId = securityContextHelper.getLoggedInUser().getId();
+        if (!cashbox.getUserId().equals(loggedInUserId)) {
+            log.error("CashboxService : cashbox {} does not belong to user {}", id, loggedInUserId);
+            throw new NotFoundException(String.format("Cashbox not found with id %s", id));
+        }
+        return cashbox;
+    }
 }
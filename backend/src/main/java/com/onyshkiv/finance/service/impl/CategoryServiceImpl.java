@@ -7,16 +7,25 @@ import com.onyshkiv.finance.model.dto.CategoryDto;
 import com.onyshkiv.finance.model.dto.request.UpdateCategoryRequest;
 import com.onyshkiv.finance.model.entity.Category;
 import com.onyshkiv.finance.model.entity.CategoryMcc;
+import com.onyshkiv.finance.model.entity.Transaction;
 import com.onyshkiv.finance.model.entity.TransactionType;
 import com.onyshkiv.finance.repository.CategoryMccRepository;
 import com.onyshkiv.finance.repository.CategoryRepository;
+import com.onyshkiv.finance.repository.TransactionJdbcRepository;
 import com.onyshkiv.finance.security.SecurityContextHelper;
 import com.onyshkiv.finance.service.CategoryService;
+import com.onyshkiv.finance.service.StatsRollupService;
 import com.onyshkiv.finance.util.ApplicationMapper;
+import com.onyshkiv.finance.util.KeysetCursor;
+import com.onyshkiv.finance.util.MccCategoryIndex;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.OffsetDateTime;
 import java.util.*;
@@ -30,13 +39,25 @@ public class CategoryServiceImpl implements CategoryService {
     private final CategoryMccRepository categoryMccRepository;
     private final SecurityContextHelper securityContextHelper;
     private final ApplicationMapper applicationMapper;
+    private final StatsRollupService statsRollupService;
+    private final MccCategoryIndex mccCategoryIndex;
+    private final TransactionJdbcRepository transactionJdbcRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${category.transfer.chunk-size:1000}")
+    private int transferChunkSize;
 
     @Autowired
-    public CategoryServiceImpl(CategoryRepository categoryRepository, CategoryMccRepository categoryMccRepository, SecurityContextHelper securityContextHelper, ApplicationMapper applicationMapper) {
+    public CategoryServiceImpl(CategoryRepository categoryRepository, CategoryMccRepository categoryMccRepository, SecurityContextHelper securityContextHelper, ApplicationMapper applicationMapper, StatsRollupService statsRollupService,
+                               MccCategoryIndex mccCategoryIndex, TransactionJdbcRepository transactionJdbcRepository, PlatformTransactionManager transactionManager) {
         this.categoryRepository = categoryRepository;
         this.categoryMccRepository = categoryMccRepository;
         this.securityContextHelper = securityContextHelper;
         this.applicationMapper = applicationMapper;
+        this.statsRollupService = statsRollupService;
+        this.mccCategoryIndex = mccCategoryIndex;
+        this.transactionJdbcRepository = transactionJdbcRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
     @Transactional
@@ -65,6 +86,7 @@ public class CategoryServiceImpl implements CategoryService {
         category.setCategoryMccs(categoryMccs);
 
         Category savedCategory = categoryRepository.save(category);
+        mccCategoryIndex.invalidate(userId, savedCategory.getType());
         log.info("CategoryService save : category successfully saved : {}", savedCategory);
 
         return applicationMapper.categoryToCategoryDto(savedCategory);
@@ -109,6 +131,7 @@ public class CategoryServiceImpl implements CategoryService {
         category.updateMccSet(categoryMccs);
 
         Category updatedCategory = categoryRepository.save(category);
+        mccCategoryIndex.invalidate(userId, updatedCategory.getType());
         log.info("CategoryService updateCategory: category successfully updated: {}", updatedCategory);
 
         return applicationMapper.categoryToCategoryDto(updatedCategory);
@@ -118,7 +141,10 @@ public class CategoryServiceImpl implements CategoryService {
     @Override
     public void deleteCategory(UUID id) {
         securityContextHelper.validateLoggedInUser();
-        categoryRepository.deleteById(id);
+        Category category = getCategory(id);
+        statsRollupService.moveCategory(category.getUserId(), id, null, category.getType());
+        categoryRepository.delete(category);
+        mccCategoryIndex.invalidate(category.getUserId(), category.getType());
         log.info("CategoryService deleteCategory : Category successfully deleted with id : {}", id);
     }
 
@@ -167,14 +193,64 @@ public class CategoryServiceImpl implements CategoryService {
         return true;
     }
 
+    /**
+     * Moves the logged-in user's transactions in id-ordered chunks, each in its own short database transaction
+     * together with the matching rollup deltas, so a large merge never holds row locks for long.
+     */
     @Override
-    @Transactional
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public void transferCategoryTransactions(UUID categoryIdFrom, UUID categoryIdTo, TransactionType transactionType) {
-        if ((categoryIdFrom != null && !getCategory(categoryIdFrom).getType().equals(transactionType))
-                || (categoryIdTo != null && !getCategory(categoryIdTo).getType().equals(transactionType))) {
+        UUID userId = securityContextHelper.getLoggedInUser().getId();
+        validateTransferCategory(categoryIdFrom, userId, transactionType);
+        validateTransferCategory(categoryIdTo, userId, transactionType);
+        if (Objects.equals(categoryIdFrom, categoryIdTo)) {
+            return;
+        }
+
+        UUID afterId = null;
+        int moved = 0;
+        int chunks = 0;
+        while (true) {
+            UUID chunkAfterId = afterId;
+            List<Transaction> chunk = transactionTemplate.execute(status -> {
+                List<Transaction> movedTransactions = transactionJdbcRepository.moveCategoryChunk(userId, categoryIdFrom, categoryIdTo,
+                        transactionType, chunkAfterId, transferChunkSize);
+                if (!movedTransactions.isEmpty()) {
+                    statsRollupService.removeTransactions(movedTransactions);
+                    Category categoryTo = categoryIdTo != null ? new Category(categoryIdTo) : null;
+                    movedTransactions.forEach(transaction -> transaction.setCategory(categoryTo));
+                    statsRollupService.addTransactions(movedTransactions);
+                }
+                return movedTransactions;
+            });
+            if (chunk == null || chunk.isEmpty()) {
+                break;
+            }
+            moved += chunk.size();
+            chunks++;
+            afterId = chunk.stream().map(Transaction::getId).max(KeysetCursor::compareIds).orElseThrow();
+            log.info("CategoryService transferCategoryTransactions : moved {} transactions of user {} from category {} to {} ({} chunks)",
+                    moved, userId, categoryIdFrom, categoryIdTo, chunks);
+            if (chunk.size() < transferChunkSize) {
+                break;
+            }
+        }
+        log.info("CategoryService transferCategoryTransactions : finished moving {} transactions of user {} from category {} to {}",
+                moved, userId, categoryIdFrom, categoryIdTo);
+    }
+
+    private void validateTransferCategory(UUID categoryId, UUID userId, TransactionType transactionType) {
+        if (categoryId == null) {
+            return;
+        }
+        Category category = getCategory(categoryId);
+        if (!category.getUserId().equals(userId)) {
+            log.error("CategoryService : Category {} does not belong to user {}", categoryId, userId);
+            throw new NotFoundException(String.format("Category not found with id %s", categoryId));
+        }
+        if (!category.getType().equals(transactionType)) {
             throw new UnsupportedException("Impossible to transfer to different category type");
         }
-        categoryRepository.transferCategoryTransactions(categoryIdFrom, categoryIdTo, transactionType.name());
     }
 
     private void checkExistingCategoriesOnDuplication(UUID userId, String name, TransactionType transactionType) {
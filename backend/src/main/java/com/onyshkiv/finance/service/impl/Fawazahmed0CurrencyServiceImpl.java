@@ -2,20 +2,47 @@ package com.onyshkiv.finance.service.impl;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import com.onyshkiv.finance.exception.ExternalServiceException;
 import com.onyshkiv.finance.exception.NotFoundException;
 import com.onyshkiv.finance.model.entity.Currency;
+import com.onyshkiv.finance.model.entity.ExchangeRate;
+import com.onyshkiv.finance.repository.ExchangeRateJdbcRepository;
+import com.onyshkiv.finance.repository.ExchangeRateRepository;
 import com.onyshkiv.finance.service.CurrencyService;
+import com.onyshkiv.finance.util.ExchangeRateTable;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Response;
+import org.springframework.dao.DataAccessException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 @Service
 @Slf4j
@@ -23,13 +50,37 @@ public class Fawazahmed0CurrencyServiceImpl implements CurrencyService {
 
     private final String BASE_URL = "https://cdn.jsdelivr.net/npm/@fawazahmed0/currency-api@latest/v1/currencies/";
     private final String FALLBACK_URL = "https://latest.currency-api.pages.dev/v1/currencies/";
+    private static final Currency BASE_CURRENCY = Currency.EUR;
     private DateTimeFormatter frmt = DateTimeFormatter.ofPattern("yyyy-MM-dd");
     private final OkHttpClient httpClient;
     private final ObjectMapper objectMapper;
+    private final ExchangeRateRepository exchangeRateRepository;
+    private final ExchangeRateJdbcRepository exchangeRateJdbcRepository;
+    private final TransactionTemplate storeTransactionTemplate;
+    private final ExecutorService exchangeRateExecutor = Executors.newFixedThreadPool(4);
 
-    public Fawazahmed0CurrencyServiceImpl(OkHttpClient httpClient, ObjectMapper objectMapper) {
+    // rates of past days never change, so they are kept until evicted by size; today's table is refreshed hourly
+    private final Cache<LocalDate, ExchangeRateTable> historicalRates = CacheBuilder.newBuilder()
+            .maximumSize(5_000)
+            .build();
+    private final Cache<LocalDate, ExchangeRateTable> recentRates = CacheBuilder.newBuilder()
+            .maximumSize(10)
+            .expireAfterWrite(1, TimeUnit.HOURS)
+            .build();
+
+    public Fawazahmed0CurrencyServiceImpl(OkHttpClient httpClient, ObjectMapper objectMapper, ExchangeRateRepository exchangeRateRepository,
+                                          ExchangeRateJdbcRepository exchangeRateJdbcRepository, PlatformTransactionManager transactionManager) {
         this.httpClient = httpClient;
         this.objectMapper = objectMapper;
+        this.exchangeRateRepository = exchangeRateRepository;
+        this.exchangeRateJdbcRepository = exchangeRateJdbcRepository;
+        this.storeTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.storeTransactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        exchangeRateExecutor.shutdownNow();
     }
 
     @Override
@@ -51,33 +102,137 @@ public class Fawazahmed0CurrencyServiceImpl implements CurrencyService {
     }
 
     @Override
-    public BigDecimal getExchangeRate(Currency currencyFrom, Currency currencyTo, LocalDate dateOfTransaction){
-        String currencyFromString = currencyFrom.name().toLowerCase();
-        String currencyToString = currencyTo.name().toLowerCase();
+    public BigDecimal getExchangeRate(Currency currencyFrom, Currency currencyTo, LocalDate dateOfTransaction) {
+        if (currencyFrom.equals(currencyTo)) {
+            return BigDecimal.ONE;
+        }
+        ExchangeRateTable rateTable = getRateTable(dateOfTransaction);
+        if (!rateTable.supports(currencyFrom) || !rateTable.supports(currencyTo)) {
+            Currency unsupported = rateTable.supports(currencyFrom) ? currencyTo : currencyFrom;
+            log.error("Not supported currency to convert {}", unsupported);
+            throw new NotFoundException("Not supported currency " + unsupported.name().toLowerCase());
+        }
+        return BigDecimal.valueOf(rateTable.crossRate(currencyFrom, currencyTo));
+    }
+
+    @Override
+    public void prefetchRates(Collection<LocalDate> dates) {
+        Set<LocalDate> missingDates = dates.stream()
+                .filter(date -> cacheFor(date).getIfPresent(date) == null)
+                .collect(Collectors.toCollection(HashSet::new));
+
+        List<LocalDate> historicalDates = missingDates.stream().filter(this::isHistorical).toList();
+        if (!historicalDates.isEmpty()) {
+            Map<LocalDate, Map<Currency, Double>> storedTables = new HashMap<>();
+            exchangeRateRepository.findAllByRateDateInAndBaseCurrency(historicalDates, BASE_CURRENCY)
+                    .forEach(rate -> storedTables.computeIfAbsent(rate.getRateDate(), date -> new EnumMap<>(Currency.class))
+                            .put(rate.getCurrency(), rate.getRate()));
+            storedTables.forEach((date, rates) -> {
+                historicalRates.put(date, ExchangeRateTable.of(rates));
+                missingDates.remove(date);
+            });
+        }
+        if (missingDates.isEmpty()) {
+            return;
+        }
+
+        log.info("Downloading exchange rate tables for {} dates", missingDates.size());
+        CompletableFuture<?>[] downloads = missingDates.stream()
+                .map(date -> CompletableFuture.runAsync(() -> getRateTable(date), exchangeRateExecutor))
+                .toArray(CompletableFuture[]::new);
+        try {
+            CompletableFuture.allOf(downloads).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private ExchangeRateTable getRateTable(LocalDate date) {
+        try {
+            return cacheFor(date).get(date, () -> loadRateTable(date));
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new ExternalServiceException("Exchange rate service is temporarily unavailable. Please try again later.", e);
+        }
+    }
+
+    private Cache<LocalDate, ExchangeRateTable> cacheFor(LocalDate date) {
+        return isHistorical(date) ? historicalRates : recentRates;
+    }
+
+    private ExchangeRateTable loadRateTable(LocalDate date) {
+        boolean historical = isHistorical(date);
+        if (historical) {
+            List<ExchangeRate> storedRates = exchangeRateRepository.findAllByRateDateAndBaseCurrency(date, BASE_CURRENCY);
+            if (!storedRates.isEmpty()) {
+                Map<Currency, Double> rates = new EnumMap<>(Currency.class);
+                storedRates.forEach(rate -> rates.put(rate.getCurrency(), rate.getRate()));
+                return ExchangeRateTable.of(rates);
+            }
+        }
 
+        String baseCurrencyString = BASE_CURRENCY.name().toLowerCase();
+        Map<Currency, Double> downloadedRates;
         try {
-            return BigDecimal.valueOf(getExchangeRate(dateOfTransaction, currencyFromString, currencyToString, BASE_URL));
+            downloadedRates = downloadRateTable(date, baseCurrencyString, BASE_URL);
         } catch (ExternalServiceException e) {
-            log.warn("Error while getting exchange rate for currencies from : {} to : {}, from base url, retrying with fallback url",
-                    currencyFromString, currencyToString);
+            log.warn("Error while getting exchange rates for {} from base url, retrying with fallback url", date);
+            downloadedRates = downloadRateTable(date, baseCurrencyString, FALLBACK_URL);
         }
-        return BigDecimal.valueOf(getExchangeRate(dateOfTransaction, currencyFromString, currencyToString, FALLBACK_URL));
+
+        if (historical) {
+            storeRateTable(date, downloadedRates);
+        }
+        return ExchangeRateTable.of(downloadedRates);
     }
 
-    private double getExchangeRate(LocalDate dateOfTransaction, String currencyFromString, String currencyToString, String url) {
+    /**
+     * Runs in its own transaction, so a rate table downloaded while converting a user's write is committed independently
+     * of it, and a table stored concurrently by another instance is skipped instead of failing that write.
+     */
+    private void storeRateTable(LocalDate date, Map<Currency, Double> rates) {
+        try {
+            storeTransactionTemplate.executeWithoutResult(status -> exchangeRateJdbcRepository.insertAllIfAbsent(date, BASE_CURRENCY, rates));
+        } catch (DataAccessException e) {
+            log.warn("Exchange rates on {} could not be stored, they will be downloaded again", date, e);
+        }
+    }
+
+    private Map<Currency, Double> downloadRateTable(LocalDate date, String baseCurrencyString, String url) {
         Request baseUrlRequest = new Request.Builder()
-                .url(url.replace("latest", dateOfTransaction.format(frmt)) + currencyFromString + ".json")
+                .url(url.replace("latest", date.format(frmt)) + baseCurrencyString + ".json")
                 .header("Content-Type", "application/json")
                 .get()
                 .build();
 
         JsonNode response = sendRequestHttpRequest(baseUrlRequest);
-        JsonNode currencyNode = response.path(currencyFromString).path(currencyToString);
-        if (currencyNode == null || currencyNode.isMissingNode()) {
-            log.error("Not supported currency to convert {}", currencyToString);
-            throw new NotFoundException("Not supported currency " + currencyToString);
+        JsonNode ratesNode = response.path(baseCurrencyString);
+        if (ratesNode == null || !ratesNode.isObject()) {
+            log.error("Exchange rates response for {} does not contain {} rates", date, baseCurrencyString);
+            throw new ExternalServiceException("Exchange rate service is temporarily unavailable. Please try again later.");
         }
-        return currencyNode.asDouble();
+
+        Map<Currency, Double> rates = new EnumMap<>(Currency.class);
+        Iterator<Map.Entry<String, JsonNode>> fields = ratesNode.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            try {
+                rates.put(Currency.fromCode(field.getKey()), field.getValue().asDouble());
+            } catch (IllegalArgumentException ignored) {
+                // the api also returns crypto and historical currencies that are not supported by the application
+            }
+        }
+        rates.put(BASE_CURRENCY, 1d);
+        return rates;
+    }
+
+    private boolean isHistorical(LocalDate date) {
+        return date.isBefore(LocalDate.now());
     }
 
     private JsonNode sendRequestHttpRequest(Request request) {
@@ -96,4 +251,4 @@ public class Fawazahmed0CurrencyServiceImpl implements CurrencyService {
             throw new ExternalServiceException("Exchange rate service is temporarily unavailable. Please try again later.");
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,176 @@
+package com.onyshkiv.finance.service.impl;
+
+import com.onyshkiv.finance.exception.TooManyRequestsException;
+import com.onyshkiv.finance.model.dto.monobank.StatementItemDetailsDto;
+import com.onyshkiv.finance.model.entity.MonobankAuth;
+import com.onyshkiv.finance.model.entity.MonobankBackfillCheckpoint;
+import com.onyshkiv.finance.model.entity.MonobankBackfillStatus;
+import com.onyshkiv.finance.repository.MonobankAuthRepository;
+import com.onyshkiv.finance.repository.MonobankBackfillCheckpointRepository;
+import com.onyshkiv.finance.service.MonobankBackfillService;
+import com.onyshkiv.finance.service.MonobankService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Imports the statement history of monitored Monobank accounts. Every account walks backwards from the moment it was
+ * monitored in windows of at most 31 days, which is the longest range the statement endpoint accepts; a full page
+ * of items moves the cursor to the oldest returned item instead. Checkpoints are claimed through the database, so with
+ * several instances every window is requested once and a Monobank client, however many accounts it has, gets at most
+ * {@code requests-per-client} requests per refill interval across all instances.
+ */
+@Service
+@Slf4j
+public class MonobankBackfillServiceImpl implements MonobankBackfillService {
+    private static final Duration MAX_WINDOW = Duration.ofDays(31);
+    private static final int STATEMENT_PAGE_LIMIT = 500;
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final MonobankBackfillCheckpointRepository checkpointRepository;
+    private final MonobankAuthRepository monobankAuthRepository;
+    private final MonobankService monobankService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${monobank.backfill.batch-size:20}")
+    private int batchSize;
+    @Value("${monobank.backfill.requests-per-client:1}")
+    private int requestsPerClient;
+    @Value("${monobank.backfill.refill-interval-seconds:60}")
+    private long refillIntervalSeconds;
+    @Value("${monobank.backfill.max-attempts:10}")
+    private int maxAttempts;
+    @Value("${monobank.backfill.lease-seconds:300}")
+    private long leaseSeconds;
+
+    @Autowired
+    public MonobankBackfillServiceImpl(MonobankBackfillCheckpointRepository checkpointRepository, MonobankAuthRepository monobankAuthRepository,
+                                       MonobankService monobankService, PlatformTransactionManager transactionManager) {
+        this.checkpointRepository = checkpointRepository;
+        this.monobankAuthRepository = monobankAuthRepository;
+        this.monobankService = monobankService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${monobank.backfill.poll-interval-ms:5000}")
+    public void runDueBackfills() {
+        for (MonobankBackfillCheckpoint checkpoint : claimDue()) {
+            Optional<MonobankAuth> monobankAuth = monobankAuthRepository.findByUserId(checkpoint.getUserId())
+                    .filter(MonobankAuth::isActivated);
+            if (monobankAuth.isEmpty()) {
+                fail(checkpoint, "Monobank access is not activated for user " + checkpoint.getUserId());
+                continue;
+            }
+            runWindow(checkpoint, monobankAuth.get().getRequestId());
+        }
+    }
+
+    /**
+     * Claims at most one due checkpoint per user. The claimed checkpoint is leased to this instance until it is saved
+     * again or the lease runs out, and the user's other checkpoints wait for the next request slot of the client.
+     */
+    private List<MonobankBackfillCheckpoint> claimDue() {
+        return transactionTemplate.execute(status -> {
+            if (!checkpointRepository.tryLockClaims()) {
+                return List.of();
+            }
+            OffsetDateTime now = OffsetDateTime.now();
+            List<MonobankBackfillCheckpoint> due = checkpointRepository.findDue(now, batchSize);
+            for (MonobankBackfillCheckpoint checkpoint : due) {
+                checkpointRepository.deferUser(checkpoint.getUserId(), checkpoint.getAccountId(),
+                        now.plusSeconds(leaseSeconds), now.plus(requestInterval()));
+            }
+            return due;
+        });
+    }
+
+    private Duration requestInterval() {
+        return Duration.ofSeconds(refillIntervalSeconds).dividedBy(requestsPerClient);
+    }
+
+    private void runWindow(MonobankBackfillCheckpoint checkpoint, String requestId) {
+        OffsetDateTime windowTo = checkpoint.getCursorTo();
+        OffsetDateTime windowFrom = windowTo.minus(MAX_WINDOW);
+        if (windowFrom.isBefore(checkpoint.getBackfillFrom())) {
+            windowFrom = checkpoint.getBackfillFrom();
+        }
+        int importedBefore = checkpoint.getImportedCount();
+        try {
+            List<StatementItemDetailsDto> items = monobankService.getStatement(requestId, checkpoint.getAccountId(),
+                    windowFrom.toEpochSecond(), windowTo.toEpochSecond());
+            OffsetDateTime nextCursor = items.size() >= STATEMENT_PAGE_LIMIT ? oldestItemCursor(items, windowTo) : windowFrom;
+            transactionTemplate.executeWithoutResult(status -> {
+                int imported = monobankService.importStatementItems(checkpoint.getAccountId(), items);
+                checkpoint.setCursorTo(nextCursor);
+                checkpoint.setImportedCount(checkpoint.getImportedCount() + imported);
+                checkpoint.setAttempts(0);
+                checkpoint.setLastError(null);
+                checkpoint.setNextAttemptAt(OffsetDateTime.now().plus(requestInterval()));
+                if (!nextCursor.isAfter(checkpoint.getBackfillFrom())) {
+                    checkpoint.setStatus(MonobankBackfillStatus.COMPLETED);
+                    log.info("MonobankBackfillService runWindow : backfill of account {} completed, {} transactions imported",
+                            checkpoint.getAccountId(), checkpoint.getImportedCount());
+                }
+                checkpointRepository.save(checkpoint);
+            });
+        } catch (TooManyRequestsException e) {
+            OffsetDateTime retryAt = OffsetDateTime.now().plusSeconds(refillIntervalSeconds);
+            checkpoint.setNextAttemptAt(retryAt);
+            transactionTemplate.executeWithoutResult(status -> {
+                checkpointRepository.save(checkpoint);
+                checkpointRepository.deferUser(checkpoint.getUserId(), checkpoint.getAccountId(), retryAt, retryAt);
+            });
+            log.warn("MonobankBackfillService runWindow : rate limited for account {}, retry in {}s",
+                    checkpoint.getAccountId(), refillIntervalSeconds);
+        } catch (Exception e) {
+            checkpoint.setCursorTo(windowTo);
+            checkpoint.setImportedCount(importedBefore);
+            checkpoint.setStatus(MonobankBackfillStatus.PENDING);
+            int attempts = checkpoint.getAttempts() + 1;
+            if (attempts >= maxAttempts) {
+                fail(checkpoint, e.getMessage());
+                return;
+            }
+            long delaySeconds = Math.min(Duration.ofHours(1).toSeconds(), refillIntervalSeconds << Math.min(attempts - 1, 20));
+            checkpoint.setAttempts(attempts);
+            checkpoint.setLastError(truncate(e.getMessage()));
+            checkpoint.setNextAttemptAt(OffsetDateTime.now().plusSeconds(delaySeconds));
+            checkpointRepository.save(checkpoint);
+            log.warn("MonobankBackfillService runWindow : window {} - {} of account {} failed, retry {} in {}s",
+                    windowFrom, windowTo, checkpoint.getAccountId(), attempts, delaySeconds, e);
+        }
+    }
+
+    /**
+     * The statement is sorted newest first and truncated at {@value #STATEMENT_PAGE_LIMIT} items, so the rest of the
+     * window ends at the oldest returned item. Items sharing that second are fetched again and skipped as duplicates.
+     */
+    private static OffsetDateTime oldestItemCursor(List<StatementItemDetailsDto> items, OffsetDateTime windowTo) {
+        long oldest = items.stream().mapToLong(StatementItemDetailsDto::getTime).min().orElse(windowTo.toEpochSecond());
+        OffsetDateTime cursor = OffsetDateTime.ofInstant(Instant.ofEpochSecond(oldest), ZoneOffset.UTC);
+        return cursor.isBefore(windowTo) ? cursor : windowTo.minusSeconds(1);
+    }
+
+    private void fail(MonobankBackfillCheckpoint checkpoint, String error) {
+        checkpoint.setStatus(MonobankBackfillStatus.FAILED);
+        checkpoint.setLastError(truncate(error));
+        checkpointRepository.save(checkpoint);
+        log.error("MonobankBackfillService fail : backfill of account {} failed : {}", checkpoint.getAccountId(), error);
+    }
+
+    private static String truncate(String error) {
+        return error != null && error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error;
+    }
+}
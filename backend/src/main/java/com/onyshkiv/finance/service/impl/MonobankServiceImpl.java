@@ -1,8 +1,11 @@
 package com.onyshkiv.finance.service.impl;
 
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.onyshkiv.finance.exception.ExternalServiceException;
 import com.onyshkiv.finance.exception.NotFoundException;
+import com.onyshkiv.finance.exception.TooManyRequestsException;
+import com.onyshkiv.finance.model.dto.CashboxLedgerEntryDto;
 import com.onyshkiv.finance.model.dto.MonobankAuthDto;
 import com.onyshkiv.finance.model.dto.monobank.MonobankCardResponse;
 import com.onyshkiv.finance.model.dto.monobank.MonobankClientDto;
@@ -12,8 +15,10 @@ import com.onyshkiv.finance.model.entity.*;
 import com.onyshkiv.finance.repository.*;
 import com.onyshkiv.finance.security.SecurityContextHelper;
 import com.onyshkiv.finance.service.MonobankService;
+import com.onyshkiv.finance.service.StatsRollupService;
 import com.onyshkiv.finance.service.TransactionService;
 import com.onyshkiv.finance.util.ApplicationMapper;
+import com.onyshkiv.finance.util.MccCategoryIndex;
 import lombok.extern.slf4j.Slf4j;
 import okhttp3.*;
 import org.bouncycastle.asn1.pkcs.PrivateKeyInfo;
@@ -25,21 +30,31 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.Reader;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
 import java.security.KeyPair;
 import java.security.PrivateKey;
 import java.security.Signature;
 import java.time.Instant;
+import java.time.LocalDate;
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import static com.onyshkiv.finance.model.entity.TransactionType.EXPENSE;
 import static com.onyshkiv.finance.util.Helper.convertCurrencyCodeToCurrency;
@@ -47,20 +62,31 @@ import static com.onyshkiv.finance.util.Helper.convertCurrencyCodeToCurrency;
 @Service
 @Slf4j
 public class MonobankServiceImpl implements MonobankService {
-    private static final String MONOBANK_AUTH_URL = "https://api.monobank.ua";
     private static final String REQUEST_ACCESS = "/personal/auth/request";
     private static final String SET_WEBHOOK = "/personal/corp/webhook";
     private static final String CLIENT_INFO = "/personal/client-info";
+    private static final String STATEMENT = "/personal/statement";
 
     private static final String BASIC_URI = "https://back.fintracker.click";
     private static final String CONFIRM_WEBHOOK_URL = BASIC_URI + "/mono/confirm";
     private static final String TRANSACTION_WEBHOOK_URL = BASIC_URI + "/mono/transaction";
-    private final UserRepository userRepository;
+    private static final ThreadLocal<Signature> SIGNERS = ThreadLocal.withInitial(() -> {
+        try {
+            return Signature.getInstance("SHA256withECDSA", "BC");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("SHA256withECDSA is not available", e);
+        }
+    });
+    private final UserCurrencyLock userCurrencyLock;
 
     @Value("${monobank.x-key-id}")
     private String xKeyId;
     @Value("${monobank.private-key-file-path}")
     private String privateKeyPath;
+    @Value("${monobank.api-url:https://api.monobank.ua}")
+    private String monobankApiUrl;
+    @Value("${monobank.backfill.history-days:365}")
+    private int backfillHistoryDays;
 
     private final OkHttpClient httpClient;
     private final ObjectMapper objectMapper;
@@ -68,11 +94,15 @@ public class MonobankServiceImpl implements MonobankService {
     private final MonobankAccountRepository monobankAccountRepository;
     private final SecurityContextHelper securityContextHelper;
     private final ApplicationMapper applicationMapper;
-    private final TransactionRepository transactionRepository;
-    private final CategoryMccRepository categoryMccRepository;
+    private final TransactionJdbcRepository transactionJdbcRepository;
+    private final MccCategoryIndex mccCategoryIndex;
     private final TransactionService transactionService;
     private final CashboxRepository cashboxRepository;
+    private final StatsRollupService statsRollupService;
+    private final MonobankBackfillCheckpointRepository monobankBackfillCheckpointRepository;
+    private final CashboxLedgerRepository cashboxLedgerRepository;
 
+    private volatile CachedPrivateKey cachedPrivateKey;
 
     @Autowired
     public MonobankServiceImpl(ObjectMapper objectMapper,
@@ -81,21 +111,27 @@ public class MonobankServiceImpl implements MonobankService {
                                MonobankAccountRepository monobankAccountRepository,
                                SecurityContextHelper securityContextHelper,
                                ApplicationMapper applicationMapper,
-                               TransactionRepository transactionRepository,
-                               CategoryMccRepository categoryMccRepository,
-                               UserRepository userRepository,
-                               TransactionService transactionService, CashboxRepository cashboxRepository) {
+                               TransactionJdbcRepository transactionJdbcRepository,
+                               MccCategoryIndex mccCategoryIndex,
+                               UserCurrencyLock userCurrencyLock,
+                               TransactionService transactionService, CashboxRepository cashboxRepository,
+                               StatsRollupService statsRollupService,
+                               MonobankBackfillCheckpointRepository monobankBackfillCheckpointRepository,
+                               CashboxLedgerRepository cashboxLedgerRepository) {
         this.objectMapper = objectMapper;
         this.monobankAuthRepository = monobankAuthRepository;
         this.httpClient = httpClient;
         this.monobankAccountRepository = monobankAccountRepository;
         this.securityContextHelper = securityContextHelper;
         this.applicationMapper = applicationMapper;
-        this.transactionRepository = transactionRepository;
-        this.categoryMccRepository = categoryMccRepository;
-        this.userRepository = userRepository;
+        this.transactionJdbcRepository = transactionJdbcRepository;
+        this.mccCategoryIndex = mccCategoryIndex;
+        this.userCurrencyLock = userCurrencyLock;
         this.transactionService = transactionService;
         this.cashboxRepository = cashboxRepository;
+        this.statsRollupService = statsRollupService;
+        this.monobankBackfillCheckpointRepository = monobankBackfillCheckpointRepository;
+        this.cashboxLedgerRepository = cashboxLedgerRepository;
     }
 
     @Transactional
@@ -137,7 +173,7 @@ public class MonobankServiceImpl implements MonobankService {
 
     private void setWebhook(String requestId) {
         try {
-            String url = MONOBANK_AUTH_URL + SET_WEBHOOK;
+            String url = monobankApiUrl + SET_WEBHOOK;
             String xTime = String.valueOf(Instant.now().getEpochSecond());
             String xSign = generateSignature(xTime + SET_WEBHOOK, SET_WEBHOOK, privateKeyPath);
 
@@ -174,28 +210,184 @@ public class MonobankServiceImpl implements MonobankService {
         UUID userId = monobankAccount.getUserId();
         StatementItemDetailsDto transactionDetails = statementItemDto.getStatementItem();
 
-        TransactionType type = transactionDetails.getAmount().compareTo(BigInteger.ZERO) > 0 ? TransactionType.INCOME : EXPENSE;
+        UUID categoryId = mccCategoryIndex.findCategoryId(userId, webhookTransactionType(transactionDetails), transactionDetails.getMcc());
+        Currency userCurrency = userCurrencyLock.lockCurrency(userId);
+
+        Transaction transaction = buildWebhookTransaction(monobankAccount, transactionDetails, categoryId, userCurrency);
+        if (!transactionJdbcRepository.insertIfAbsent(transaction)) {
+            log.info("MonobankService parseAndSaveTransactionWebhook : statement item {} already stored, skipping", transactionDetails.getId());
+            return;
+        }
+        Cashbox cashbox = monobankAccount.getCashbox();
+        cashboxLedgerRepository.append(ledgerEntry(transaction));
+        cashbox.setBalance(cashboxLedgerRepository.currentBalance(cashbox.getId()));
+        statsRollupService.addTransaction(transaction);
+    }
+
+    /**
+     * Set-based variant of {@link #parseAndSaveTransactionWebhook(StatementItemDto)} for a burst of webhooks:
+     * accounts and users are loaded with one query each, categories come from the {@link MccCategoryIndex}, transactions are inserted in one JDBC batch
+     * and their cashbox ledger entries are appended in another one.
+     */
+    @Override
+    @Transactional
+    public void parseAndSaveTransactionWebhooks(List<StatementItemDto> statementItems) {
+        List<Transaction> inserted = saveStatementItems(statementItems, false);
+        log.info("MonobankService parseAndSaveTransactionWebhooks : saved {} of {} webhook transactions",
+                inserted.size(), statementItems.size());
+    }
+
+    /**
+     * Imports statement history through the same idempotent path as webhooks. The cashbox balance was taken from
+     * Monobank when the account was connected, so only items newer than the cashbox change its balance.
+     */
+    @Override
+    @Transactional
+    public int importStatementItems(String accountId, List<StatementItemDetailsDto> statementItems) {
+        if (statementItems.isEmpty()) {
+            return 0;
+        }
+        List<StatementItemDto> items = statementItems.stream()
+                .map(statementItem -> new StatementItemDto(accountId, statementItem))
+                .toList();
+        int inserted = saveStatementItems(items, true).size();
+        log.info("MonobankService importStatementItems : imported {} of {} statement items for account {}",
+                inserted, statementItems.size(), accountId);
+        return inserted;
+    }
+
+    private List<Transaction> saveStatementItems(List<StatementItemDto> statementItems, boolean history) {
+        Set<String> accountIds = statementItems.stream().map(StatementItemDto::getAccount).collect(Collectors.toSet());
+        Map<String, MonobankAccount> accounts = monobankAccountRepository.findAllByAccountIdIn(accountIds).stream()
+                .collect(Collectors.toMap(MonobankAccount::getAccountId, Function.identity()));
+
+        List<StatementItemDto> monitoredItems = new ArrayList<>(statementItems.size());
+        for (StatementItemDto statementItem : statementItems) {
+            MonobankAccount monobankAccount = accounts.get(statementItem.getAccount());
+            if (monobankAccount == null) {
+                throw new NotFoundException("Monobank account not found for monobank account id: " + statementItem.getAccount());
+            }
+            if (monobankAccount.getMonitor()) {
+                monitoredItems.add(statementItem);
+            } else {
+                log.info("user do not monitor account with id {}, skipping transaction", statementItem.getAccount());
+            }
+        }
+        if (monitoredItems.isEmpty()) {
+            return List.of();
+        }
+
+        Set<UUID> userIds = monitoredItems.stream()
+                .map(statementItem -> accounts.get(statementItem.getAccount()).getUserId())
+                .collect(Collectors.toSet());
+        Map<UUID, Currency> userCurrencies = userCurrencyLock.lockCurrencies(userIds);
+
+        List<Transaction> transactions = new ArrayList<>(monitoredItems.size());
+        Set<UUID> balanceTransactionIds = new HashSet<>();
+        for (StatementItemDto statementItem : monitoredItems) {
+            MonobankAccount monobankAccount = accounts.get(statementItem.getAccount());
+            UUID userId = monobankAccount.getUserId();
+            Currency userCurrency = userCurrencies.get(userId);
+            if (userCurrency == null) {
+                throw new NotFoundException("User not found with id " + userId);
+            }
+            StatementItemDetailsDto transactionDetails = statementItem.getStatementItem();
+            UUID categoryId = mccCategoryIndex.findCategoryId(userId, webhookTransactionType(transactionDetails), transactionDetails.getMcc());
+            Transaction transaction = buildWebhookTransaction(monobankAccount, transactionDetails, categoryId, userCurrency);
+            transactions.add(transaction);
+            if (!history || isAfterBalanceSnapshot(transactionDetails, monobankAccount.getCashbox())) {
+                balanceTransactionIds.add(transaction.getId());
+            }
+        }
+
+        if (history) {
+            transactions = withoutStoredWithoutExternalId(transactions);
+        }
+        List<Transaction> inserted = transactionJdbcRepository.insertAllIfAbsent(transactions);
+        List<CashboxLedgerEntryDto> ledgerEntries = inserted.stream()
+                .filter(transaction -> transaction.getCashbox() != null && balanceTransactionIds.contains(transaction.getId()))
+                .map(MonobankServiceImpl::ledgerEntry)
+                .toList();
+        cashboxLedgerRepository.appendAll(ledgerEntries);
+        statsRollupService.addTransactions(inserted);
+        return inserted;
+    }
+
+    /**
+     * Webhook transactions stored before external ids were recorded cannot be matched by id, so a history item is
+     * taken as already booked when the cashbox has such a transaction of the same date, type and base amount.
+     * Every stored transaction absorbs at most one item.
+     */
+    private List<Transaction> withoutStoredWithoutExternalId(List<Transaction> transactions) {
+        Map<UUID, List<Transaction>> byCashbox = transactions.stream()
+                .filter(transaction -> transaction.getCashbox() != null)
+                .collect(Collectors.groupingBy(transaction -> transaction.getCashbox().getId()));
+        Map<StoredTransactionKey, Integer> stored = new HashMap<>();
+        byCashbox.forEach((cashboxId, cashboxTransactions) -> {
+            LocalDate from = cashboxTransactions.stream().map(Transaction::getTransactionDate).min(LocalDate::compareTo).orElseThrow();
+            LocalDate to = cashboxTransactions.stream().map(Transaction::getTransactionDate).max(LocalDate::compareTo).orElseThrow();
+            for (Transaction transaction : transactionJdbcRepository.findWithoutExternalId(cashboxId, from, to)) {
+                stored.merge(StoredTransactionKey.of(cashboxId, transaction), 1, Integer::sum);
+            }
+        });
+        if (stored.isEmpty()) {
+            return transactions;
+        }
+
+        List<Transaction> remaining = new ArrayList<>(transactions.size());
+        for (Transaction transaction : transactions) {
+            StoredTransactionKey key = transaction.getCashbox() != null
+                    ? StoredTransactionKey.of(transaction.getCashbox().getId(), transaction)
+                    : null;
+            Integer count = key != null ? stored.get(key) : null;
+            if (count == null) {
+                remaining.add(transaction);
+            } else if (count > 1) {
+                stored.put(key, count - 1);
+            } else {
+                stored.remove(key);
+            }
+        }
+        log.info("MonobankService withoutStoredWithoutExternalId : skipped {} statement items stored without external id",
+                transactions.size() - remaining.size());
+        return remaining;
+    }
+
+    private static CashboxLedgerEntryDto ledgerEntry(Transaction transaction) {
+        return new CashboxLedgerEntryDto(transaction.getCashbox().getId(), signedBaseAmount(transaction),
+                CashboxLedgerEntryType.TRANSACTION, transaction.getId(), transaction.getTransactionDate());
+    }
+
+    private static boolean isAfterBalanceSnapshot(StatementItemDetailsDto transactionDetails, Cashbox cashbox) {
+        return cashbox != null && cashbox.getCreatedAt() != null
+                && transactionDetails.getTime() > cashbox.getCreatedAt().toEpochSecond();
+    }
+
+    private Transaction buildWebhookTransaction(MonobankAccount monobankAccount, StatementItemDetailsDto transactionDetails,
+                                                UUID categoryId, Currency userCurrency) {
         BigDecimal amount = new BigDecimal(transactionDetails.getAmount()).divide(BigDecimal.valueOf(100)).abs();
-        Optional<UUID> categoryIdOptional = categoryMccRepository.getCategoryIdByMccAndUserIdAndType(transactionDetails.getMcc(), userId, type);
 //        Currency transactionCurrency = convertCurrencyCodeToCurrency(transactionDetails.getCurrencyCode());
         Currency transactionCurrency = convertCurrencyCodeToCurrency(monobankAccount.getCurrencyCode());
-        User user = userRepository.findById(userId).orElseThrow(() -> new NotFoundException("User not found with id " + userId));
-
         Transaction transaction = Transaction.builder()
                 .id(UUID.randomUUID())
-                .userId(userId)
-                .category(categoryIdOptional.map(Category::new).orElse(null))
-                .type(type)
+                .userId(monobankAccount.getUserId())
+                .category(categoryId != null ? new Category(categoryId) : null)
+                .type(webhookTransactionType(transactionDetails))
                 .cashbox(monobankAccount.getCashbox())
                 .description(transactionDetails.getDescription())
                 .transactionDate(transactionDetails.getTransactionDate())
+                .externalId(transactionDetails.getId())
                 .build();
-        transactionService.setTransactionAmountInternal(amount, transactionCurrency, user.getCurrency(), transaction);
-        Cashbox cashbox = monobankAccount.getCashbox();
-        BigDecimal cashboxBalance = cashbox.getBalance();
-        cashbox.setBalance(EXPENSE.equals(transaction.getType()) ? cashboxBalance.subtract(transaction.getBaseAmount()) : cashboxBalance.add(transaction.getBaseAmount()));
-        transactionRepository.save(transaction);
+        transactionService.setTransactionAmountInternal(amount, transactionCurrency, userCurrency, transaction);
+        return transaction;
+    }
+
+    private static TransactionType webhookTransactionType(StatementItemDetailsDto transactionDetails) {
+        return transactionDetails.getAmount().compareTo(BigInteger.ZERO) > 0 ? TransactionType.INCOME : EXPENSE;
+    }
 
+    private static BigDecimal signedBaseAmount(Transaction transaction) {
+        return EXPENSE.equals(transaction.getType()) ? transaction.getBaseAmount().negate() : transaction.getBaseAmount();
     }
 
     @Override
@@ -205,6 +397,34 @@ public class MonobankServiceImpl implements MonobankService {
                 .orElseThrow(() -> new NotFoundException("Monobank account not found for monobank account id: " + accountId));
         monobankAccount.setMonitor(true);
         monobankAccount.getCashbox().setDeletedAt(null);
+        OffsetDateTime now = OffsetDateTime.now();
+        monobankBackfillCheckpointRepository.scheduleIfAbsent(accountId, monobankAccount.getUserId(), now.minusDays(backfillHistoryDays), now);
+    }
+
+    @Override
+    public List<StatementItemDetailsDto> getStatement(String requestId, String accountId, long from, long to) {
+        try {
+            String resource = STATEMENT + "/" + accountId + "/" + from + "/" + to;
+            String xTime = String.valueOf(Instant.now().getEpochSecond());
+            String xSign = generateSignature(xTime + requestId + resource, STATEMENT, privateKeyPath);
+
+            Request request = new Request.Builder()
+                    .url(monobankApiUrl + resource)
+                    .header("X-Key-Id", xKeyId)
+                    .header("X-Time", xTime)
+                    .header("X-Sign", xSign)
+                    .header("X-Request-Id", requestId)
+                    .header("Content-Type", "application/json")
+                    .get()
+                    .build();
+
+            String responseJson = sendRequestToMonobankApi(request);
+            return responseJson != null
+                    ? objectMapper.readValue(responseJson, new TypeReference<List<StatementItemDetailsDto>>() {})
+                    : List.of();
+        } catch (IOException e) {
+            throw new ExternalServiceException("Error during request to Monobank api: " + e.getMessage(), e);
+        }
     }
 
     @Override
@@ -244,7 +464,10 @@ public class MonobankServiceImpl implements MonobankService {
                             .balance(account.getBalance())
                             .deletedAt(OffsetDateTime.now())
                             .build();
-                    cashboxRepository.save(cashbox);
+                    cashboxRepository.saveAndFlush(cashbox);
+                    cashboxLedgerRepository.append(new CashboxLedgerEntryDto(cashbox.getId(),
+                            Optional.ofNullable(account.getBalance()).orElse(BigDecimal.ZERO),
+                            CashboxLedgerEntryType.OPENING, null, LocalDate.now()));
                 } else {
                     cashbox = cashboxFromDb.get();
                 }
@@ -258,7 +481,7 @@ public class MonobankServiceImpl implements MonobankService {
 
     private String getClientInfo(String requestId) {
         try {
-            String url = MONOBANK_AUTH_URL + CLIENT_INFO;
+            String url = monobankApiUrl + CLIENT_INFO;
             String xTime = String.valueOf(Instant.now().getEpochSecond());
             String xSign = generateSignature(xTime + requestId + CLIENT_INFO, CLIENT_INFO, privateKeyPath);
 
@@ -280,7 +503,7 @@ public class MonobankServiceImpl implements MonobankService {
 
     private String requestAccess() {
         try {
-            String url = MONOBANK_AUTH_URL + REQUEST_ACCESS;
+            String url = monobankApiUrl + REQUEST_ACCESS;
             String xTime = String.valueOf(Instant.now().getEpochSecond());
             String xSign = generateSignature(xTime + REQUEST_ACCESS, REQUEST_ACCESS, privateKeyPath);
 
@@ -302,6 +525,9 @@ public class MonobankServiceImpl implements MonobankService {
 
     private String sendRequestToMonobankApi(Request request) throws IOException {
         try (Response response = httpClient.newCall(request).execute()) {
+            if (response.code() == 429) {
+                throw new TooManyRequestsException("Monobank api rate limit exceeded: " + response);
+            }
             if (!response.isSuccessful()) {
                 throw new ExternalServiceException("Not success response from monobank api: " + response + " body: " + (response.body() != null ? response.body().string() : null));
             }
@@ -311,10 +537,10 @@ public class MonobankServiceImpl implements MonobankService {
 
     public String generateSignature(String dataToSign, String resource, String privateKeyPath) {
         try {
-            PrivateKey privateKey = loadECPrivateKey(privateKeyPath);
+            PrivateKey privateKey = getECPrivateKey(privateKeyPath);
             byte[] data = dataToSign.getBytes(StandardCharsets.UTF_8);
 
-            Signature signer = Signature.getInstance("SHA256withECDSA", "BC");
+            Signature signer = SIGNERS.get();
             signer.initSign(privateKey);
             signer.update(data);
             byte[] signatureBytes = signer.sign();
@@ -325,6 +551,23 @@ public class MonobankServiceImpl implements MonobankService {
         }
     }
 
+    private PrivateKey getECPrivateKey(String filename) throws Exception {
+        long lastModified = new File(filename).lastModified();
+        CachedPrivateKey cached = cachedPrivateKey;
+        if (cached != null && cached.path().equals(filename) && cached.lastModified() == lastModified) {
+            return cached.key();
+        }
+        synchronized (this) {
+            cached = cachedPrivateKey;
+            if (cached == null || !cached.path().equals(filename) || cached.lastModified() != lastModified) {
+                cached = new CachedPrivateKey(filename, lastModified, loadECPrivateKey(filename));
+                cachedPrivateKey = cached;
+                log.info("MonobankService getECPrivateKey : private key loaded from {}", filename);
+            }
+            return cached.key();
+        }
+    }
+
     private PrivateKey loadECPrivateKey(String filename) throws Exception {
         try (Reader reader = new FileReader(filename);
              PEMParser pemParser = new PEMParser(reader)) {
@@ -346,4 +589,13 @@ public class MonobankServiceImpl implements MonobankService {
         }
     }
 
+    private record CachedPrivateKey(String path, long lastModified, PrivateKey key) {
+    }
+
+    private record StoredTransactionKey(UUID cashboxId, LocalDate date, TransactionType type, BigDecimal baseAmount) {
+        static StoredTransactionKey of(UUID cashboxId, Transaction transaction) {
+            return new StoredTransactionKey(cashboxId, transaction.getTransactionDate(), transaction.getType(),
+                    transaction.getBaseAmount().stripTrailingZeros());
+        }
+    }
 }
@@ -0,0 +1,200 @@
+package com.onyshkiv.finance.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.onyshkiv.finance.exception.NotFoundException;
+import com.onyshkiv.finance.exception.UnsupportedException;
+import com.onyshkiv.finance.model.dto.monobank.MonobankWebhookInboxItem;
+import com.onyshkiv.finance.model.dto.monobank.StatementItemDto;
+import com.onyshkiv.finance.model.entity.MonobankAccount;
+import com.onyshkiv.finance.repository.MonobankAccountRepository;
+import com.onyshkiv.finance.repository.MonobankWebhookInboxRepository;
+import com.onyshkiv.finance.service.MonobankService;
+import com.onyshkiv.finance.service.MonobankWebhookInboxService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+@Service
+@Slf4j
+public class MonobankWebhookInboxServiceImpl implements MonobankWebhookInboxService {
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final MonobankWebhookInboxRepository inboxRepository;
+    private final MonobankAccountRepository monobankAccountRepository;
+    private final MonobankService monobankService;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int workers;
+
+    @Value("${monobank.webhook.max-attempts:8}")
+    private int maxAttempts;
+    @Value("${monobank.webhook.base-backoff-seconds:5}")
+    private long baseBackoffSeconds;
+    @Value("${monobank.webhook.max-backoff-seconds:3600}")
+    private long maxBackoffSeconds;
+    @Value("${monobank.webhook.lock-timeout-seconds:300}")
+    private long lockTimeoutSeconds;
+    @Value("${monobank.webhook.retention-days:7}")
+    private int retentionDays;
+
+    private final ExecutorService webhookExecutor;
+
+    @Autowired
+    public MonobankWebhookInboxServiceImpl(MonobankWebhookInboxRepository inboxRepository, MonobankAccountRepository monobankAccountRepository,
+                                           MonobankService monobankService,
+                                           ObjectMapper objectMapper, PlatformTransactionManager transactionManager,
+                                           @Value("${monobank.webhook.workers:4}") int workers,
+                                           @Value("${monobank.webhook.batch-size:50}") int batchSize) {
+        this.inboxRepository = inboxRepository;
+        this.monobankAccountRepository = monobankAccountRepository;
+        this.monobankService = monobankService;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.workers = workers;
+        this.webhookExecutor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(batchSize));
+    }
+
+    @Override
+    public void enqueue(StatementItemDto statementItemDto) {
+        if (statementItemDto == null || statementItemDto.getAccount() == null) {
+            throw new UnsupportedException("Monobank webhook without account is not supported");
+        }
+        // the webhook endpoint is public, so only webhooks of monitored accounts are stored
+        MonobankAccount monobankAccount = monobankAccountRepository.findByAccountId(statementItemDto.getAccount())
+                .orElseThrow(() -> new NotFoundException("Monobank account not found for monobank account id: " + statementItemDto.getAccount()));
+        if (!monobankAccount.getMonitor()) {
+            log.info("user do not monitor account with id {}, skipping transaction", statementItemDto.getAccount());
+            return;
+        }
+        try {
+            inboxRepository.insert(statementItemDto.getAccount(), objectMapper.writeValueAsString(statementItemDto));
+        } catch (JsonProcessingException e) {
+            throw new UnsupportedException("Monobank webhook payload can not be serialized: " + e.getOriginalMessage());
+        }
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${monobank.webhook.poll-interval-ms:200}")
+    public void drain() {
+        int released = inboxRepository.releaseStale(lockTimeoutSeconds);
+        if (released > 0) {
+            log.warn("MonobankWebhookInboxService drain : released {} webhooks stuck in processing", released);
+        }
+        List<MonobankWebhookInboxItem> batch;
+        do {
+            batch = transactionTemplate.execute(status -> inboxRepository.claim(batchSize));
+            Map<Integer, List<MonobankWebhookInboxItem>> partitions = batch.stream()
+                    .collect(Collectors.groupingBy(item -> Math.floorMod(item.accountId().hashCode(), workers),
+                            LinkedHashMap::new, Collectors.toList()));
+            CompletableFuture.allOf(partitions.values().stream()
+                    .map(partition -> CompletableFuture.runAsync(() -> processBatch(partition), webhookExecutor))
+                    .toArray(CompletableFuture[]::new)).join();
+        } while (batch.size() == batchSize);
+    }
+
+    @Override
+    @Scheduled(cron = "${monobank.webhook.purge-cron:0 0 3 * * *}")
+    public void purgeProcessed() {
+        int deleted = inboxRepository.deleteProcessedOlderThan(retentionDays);
+        log.info("MonobankWebhookInboxService purgeProcessed : deleted {} processed and dead webhooks", deleted);
+    }
+
+    /**
+     * Writes the whole partition in one transaction. If anything in it fails, the partition is replayed item by
+     * item so only the offending webhook is retried or dead-lettered; webhooks queued behind a retried one of the
+     * same account are handed back unprocessed to keep the account's order.
+     */
+    private void processBatch(List<MonobankWebhookInboxItem> items) {
+        if (items.size() > 1) {
+            try {
+                List<StatementItemDto> statementItems = new ArrayList<>(items.size());
+                for (MonobankWebhookInboxItem item : items) {
+                    statementItems.add(objectMapper.readValue(item.payload(), StatementItemDto.class));
+                }
+                transactionTemplate.executeWithoutResult(status -> {
+                    monobankService.parseAndSaveTransactionWebhooks(statementItems);
+                    inboxRepository.markAllDone(items.stream().map(MonobankWebhookInboxItem::id).toList());
+                });
+                return;
+            } catch (Exception e) {
+                log.warn("MonobankWebhookInboxService processBatch : batch of {} webhooks failed, processing one by one : {}",
+                        items.size(), e.getMessage());
+            }
+        }
+        Set<String> blockedAccounts = new HashSet<>();
+        for (MonobankWebhookInboxItem item : items) {
+            if (blockedAccounts.contains(item.accountId())) {
+                inboxRepository.release(item.id());
+            } else if (!process(item)) {
+                blockedAccounts.add(item.accountId());
+            }
+        }
+    }
+
+    /**
+     * @return {@code false} if the webhook was scheduled for a retry
+     */
+    private boolean process(MonobankWebhookInboxItem item) {
+        try {
+            StatementItemDto statementItemDto = objectMapper.readValue(item.payload(), StatementItemDto.class);
+            transactionTemplate.executeWithoutResult(status -> {
+                monobankService.parseAndSaveTransactionWebhook(statementItemDto);
+                inboxRepository.markDone(item.id());
+            });
+            return true;
+        } catch (Exception e) {
+            return !handleFailure(item, e);
+        }
+    }
+
+    /**
+     * @return {@code true} if the webhook was scheduled for a retry, {@code false} if it was dead-lettered
+     */
+    private boolean handleFailure(MonobankWebhookInboxItem item, Exception e) {
+        int attempts = item.attempts() + 1;
+        String error = truncate(e.getClass().getSimpleName() + ": " + e.getMessage());
+        boolean permanent = e instanceof NotFoundException || e instanceof JsonProcessingException;
+        if (permanent || attempts >= maxAttempts) {
+            inboxRepository.markDead(item.id(), attempts, error);
+            log.error("MonobankWebhookInboxService process : webhook {} for account {} dead after {} attempts",
+                    item.id(), item.accountId(), attempts, e);
+            return false;
+        }
+        long delaySeconds = Math.min(maxBackoffSeconds, baseBackoffSeconds << Math.min(attempts - 1, 20));
+        inboxRepository.reschedule(item.id(), attempts, error, delaySeconds);
+        log.warn("MonobankWebhookInboxService process : webhook {} for account {} failed, retry {} in {}s : {}",
+                item.id(), item.accountId(), attempts, delaySeconds, error);
+        return true;
+    }
+
+    private static String truncate(String error) {
+        return error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        webhookExecutor.shutdown();
+    }
+}
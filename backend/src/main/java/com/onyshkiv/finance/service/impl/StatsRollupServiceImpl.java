@@ -0,0 +1,168 @@
+package com.onyshkiv.finance.service.impl;
+
+import com.onyshkiv.finance.model.entity.Transaction;
+import com.onyshkiv.finance.model.entity.TransactionType;
+import com.onyshkiv.finance.repository.TransactionDailyRollupRepository;
+import com.onyshkiv.finance.repository.TransactionMonthlyRollupRepository;
+import com.onyshkiv.finance.service.StatsRollupService;
+import com.onyshkiv.finance.util.StatsResultCache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Keeps {@code transaction_daily_rollup} and {@code transaction_monthly_rollup} in step with the {@code transaction} table.
+ * Every write path that creates, changes or removes transactions must call it inside the same database transaction.
+ */
+@Service
+@Slf4j
+@Transactional(readOnly = true)
+public class StatsRollupServiceImpl implements StatsRollupService {
+    private final TransactionDailyRollupRepository rollupRepository;
+    private final TransactionMonthlyRollupRepository monthlyRollupRepository;
+    private final StatsResultCache statsResultCache;
+
+    @Autowired
+    public StatsRollupServiceImpl(TransactionDailyRollupRepository rollupRepository, TransactionMonthlyRollupRepository monthlyRollupRepository,
+                                  StatsResultCache statsResultCache) {
+        this.rollupRepository = rollupRepository;
+        this.monthlyRollupRepository = monthlyRollupRepository;
+        this.statsResultCache = statsResultCache;
+    }
+
+    @Transactional
+    @Override
+    public void addTransaction(Transaction transaction) {
+        UUID categoryId = categoryId(transaction);
+        UUID cashboxId = cashboxId(transaction);
+        String type = transaction.getType().name();
+        rollupRepository.applyDelta(transaction.getUserId(), transaction.getTransactionDate(), type,
+                categoryId, cashboxId, transaction.getAmount(), 1);
+        monthlyRollupRepository.applyDelta(transaction.getUserId(), monthStart(transaction), type,
+                categoryId, cashboxId, transaction.getAmount(), 1);
+        statsResultCache.evictDate(transaction.getUserId(), transaction.getTransactionDate());
+    }
+
+    /**
+     * Coalesces the transactions into one delta per rollup row before writing, so a batch touching the same
+     * day, category and cashbox many times costs a single upsert.
+     */
+    @Transactional
+    @Override
+    public void addTransactions(Collection<Transaction> transactions) {
+        applyTransactions(transactions, false);
+    }
+
+    /**
+     * Coalesced counterpart of {@link #removeTransaction(Transaction)}; rollup rows left without transactions are deleted.
+     */
+    @Transactional
+    @Override
+    public void removeTransactions(Collection<Transaction> transactions) {
+        applyTransactions(transactions, true);
+    }
+
+    private void applyTransactions(Collection<Transaction> transactions, boolean remove) {
+        Map<RollupKey, RollupDelta> daily = new HashMap<>();
+        Map<RollupKey, RollupDelta> monthly = new HashMap<>();
+        for (Transaction transaction : transactions) {
+            String type = transaction.getType().name();
+            BigDecimal amount = remove ? transaction.getAmount().negate() : transaction.getAmount();
+            int count = remove ? -1 : 1;
+            daily.computeIfAbsent(new RollupKey(transaction.getUserId(), transaction.getTransactionDate(), type,
+                    categoryId(transaction), cashboxId(transaction)), key -> new RollupDelta()).add(amount, count);
+            monthly.computeIfAbsent(new RollupKey(transaction.getUserId(), monthStart(transaction), type,
+                    categoryId(transaction), cashboxId(transaction)), key -> new RollupDelta()).add(amount, count);
+        }
+        daily.forEach((key, delta) -> {
+            rollupRepository.applyDelta(key.userId(), key.date(), key.type(), key.categoryId(), key.cashboxId(), delta.amount, delta.count);
+            if (remove) {
+                rollupRepository.deleteIfEmpty(key.userId(), key.date(), key.type(), key.categoryId(), key.cashboxId());
+            }
+        });
+        monthly.forEach((key, delta) -> {
+            monthlyRollupRepository.applyDelta(key.userId(), key.date(), key.type(), key.categoryId(), key.cashboxId(), delta.amount, delta.count);
+            if (remove) {
+                monthlyRollupRepository.deleteIfEmpty(key.userId(), key.date(), key.type(), key.categoryId(), key.cashboxId());
+            }
+        });
+        daily.keySet().stream()
+                .map(key -> Map.entry(key.userId(), key.date()))
+                .distinct()
+                .forEach(entry -> statsResultCache.evictDate(entry.getKey(), entry.getValue()));
+    }
+
+    @Transactional
+    @Override
+    public void removeTransaction(Transaction transaction) {
+        UUID categoryId = categoryId(transaction);
+        UUID cashboxId = cashboxId(transaction);
+        String type = transaction.getType().name();
+        rollupRepository.applyDelta(transaction.getUserId(), transaction.getTransactionDate(), type,
+                categoryId, cashboxId, transaction.getAmount().negate(), -1);
+        rollupRepository.deleteIfEmpty(transaction.getUserId(), transaction.getTransactionDate(), type, categoryId, cashboxId);
+        monthlyRollupRepository.applyDelta(transaction.getUserId(), monthStart(transaction), type,
+                categoryId, cashboxId, transaction.getAmount().negate(), -1);
+        monthlyRollupRepository.deleteIfEmpty(transaction.getUserId(), monthStart(transaction), type, categoryId, cashboxId);
+        statsResultCache.evictDate(transaction.getUserId(), transaction.getTransactionDate());
+    }
+
+    @Transactional
+    @Override
+    public void moveCategory(UUID userId, UUID categoryIdFrom, UUID categoryIdTo, TransactionType transactionType) {
+        if (Objects.equals(categoryIdFrom, categoryIdTo)) {
+            return;
+        }
+        rollupRepository.mergeCategory(userId, categoryIdFrom, categoryIdTo, transactionType.name());
+        rollupRepository.deleteCategory(userId, categoryIdFrom, transactionType.name());
+        monthlyRollupRepository.mergeCategory(userId, categoryIdFrom, categoryIdTo, transactionType.name());
+        monthlyRollupRepository.deleteCategory(userId, categoryIdFrom, transactionType.name());
+        statsResultCache.evictUser(userId);
+        log.info("StatsRollupService moveCategory : rollups moved from category {} to {}", categoryIdFrom, categoryIdTo);
+    }
+
+    @Transactional
+    @Override
+    public void rebuildUserRollups(UUID userId) {
+        rollupRepository.deleteAllByUser(userId);
+        rollupRepository.insertAllFromTransactions(userId);
+        monthlyRollupRepository.deleteAllByUser(userId);
+        monthlyRollupRepository.insertAllFromTransactions(userId);
+        statsResultCache.evictUser(userId);
+        log.info("StatsRollupService rebuildUserRollups : rollups rebuilt for user {}", userId);
+    }
+
+    private record RollupKey(UUID userId, LocalDate date, String type, UUID categoryId, UUID cashboxId) {
+    }
+
+    private static final class RollupDelta {
+        private BigDecimal amount = BigDecimal.ZERO;
+        private int count;
+
+        private void add(BigDecimal value, int countDelta) {
+            amount = amount.add(value);
+            count += countDelta;
+        }
+    }
+
+    private static LocalDate monthStart(Transaction transaction) {
+        return transaction.getTransactionDate().withDayOfMonth(1);
+    }
+
+    private static UUID categoryId(Transaction transaction) {
+        return transaction.getCategory() != null ? transaction.getCategory().getId() : null;
+    }
+
+    private static UUID cashboxId(Transaction transaction) {
+        return transaction.getCashbox() != null ? transaction.getCashbox().getId() : null;
+    }
+}
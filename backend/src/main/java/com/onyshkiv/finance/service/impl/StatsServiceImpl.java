@@ -4,9 +4,12 @@ import com.onyshkiv.finance.exception.UnsupportedException;
 import com.onyshkiv.finance.model.dto.response.*;
 import com.onyshkiv.finance.model.entity.Category;
 import com.onyshkiv.finance.model.entity.TransactionType;
-import com.onyshkiv.finance.repository.TransactionRepository;
+import com.onyshkiv.finance.repository.TransactionDailyRollupRepository;
+import com.onyshkiv.finance.repository.TransactionMonthlyRollupRepository;
 import com.onyshkiv.finance.security.SecurityContextHelper;
 import com.onyshkiv.finance.service.StatsService;
+import com.onyshkiv.finance.util.StatsRange;
+import com.onyshkiv.finance.util.StatsResultCache;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -16,13 +19,11 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.Year;
 import java.time.YearMonth;
-import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
-import java.util.stream.Collectors;
 
 import static com.onyshkiv.finance.model.entity.TransactionType.EXPENSE;
 import static com.onyshkiv.finance.model.entity.TransactionType.INCOME;
@@ -31,88 +32,105 @@ import static com.onyshkiv.finance.model.entity.TransactionType.INCOME;
 @Slf4j
 @Transactional(readOnly = true)
 public class StatsServiceImpl implements StatsService {
-    private final TransactionRepository transactionRepository;
+    private final TransactionDailyRollupRepository rollupRepository;
+    private final TransactionMonthlyRollupRepository monthlyRollupRepository;
     private final SecurityContextHelper securityContextHelper;
+    private final StatsResultCache statsResultCache;
 
     @Autowired
-    public StatsServiceImpl(TransactionRepository transactionRepository, SecurityContextHelper securityContextHelper) {
-        this.transactionRepository = transactionRepository;
+    public StatsServiceImpl(TransactionDailyRollupRepository rollupRepository, TransactionMonthlyRollupRepository monthlyRollupRepository,
+                            SecurityContextHelper securityContextHelper, StatsResultCache statsResultCache) {
+        this.rollupRepository = rollupRepository;
+        this.monthlyRollupRepository = monthlyRollupRepository;
         this.securityContextHelper = securityContextHelper;
+        this.statsResultCache = statsResultCache;
     }
 
     @Override
     public BalanceStatsResponse getBalanceStats(LocalDate from, LocalDate to) {
-        validateDateRange(from, to);
+        StatsRange range = validateDateRange(from, to);
         UUID userId = securityContextHelper.getLoggedInUser().getId();
-        List<Object[]> results = transactionRepository.getBalanceStats(userId, from, to);
+        return statsResultCache.get(userId, "balance", from, to, () -> {
+            List<Object[]> results = rollupRepository.getBalanceStats(userId, range.from(), range.monthsFrom(), range.monthsTo(), range.toExclusive());
 
-        double income = 0;
-        double expense = 0;
+            double income = 0;
+            double expense = 0;
 
-        for (Object[] row : results) {
-            TransactionType type = (TransactionType) row[0];
-            BigDecimal amount = (BigDecimal) row[1];
+            for (Object[] row : results) {
+                TransactionType type = TransactionType.valueOf((String) row[0]);
+                BigDecimal amount = (BigDecimal) row[1];
 
-            if (INCOME.equals(type)) {
-                income = amount != null ? amount.doubleValue() : 0;
-            } else if (EXPENSE.equals(type)) {
-                expense = amount != null ? amount.doubleValue() : 0;
+                if (INCOME.equals(type)) {
+                    income = amount != null ? amount.doubleValue() : 0;
+                } else if (EXPENSE.equals(type)) {
+                    expense = amount != null ? amount.doubleValue() : 0;
+                }
             }
-        }
 
-        return new BalanceStatsResponse(expense, income);
+            return new BalanceStatsResponse(expense, income);
+        });
     }
 
     public List<CategoryStatsResponse> getCategoryStats(LocalDate from, LocalDate to) {
-        validateDateRange(from, to);
+        StatsRange range = validateDateRange(from, to);
         UUID userId = securityContextHelper.getLoggedInUser().getId();
-        List<Object[]> results = transactionRepository.getCategoriesStats(userId, from, to);
-
-        return results.stream()
-                .map(result -> new CategoryStatsResponse(
-                        (TransactionType) result[0],
-                        (String) result[1],
-                        (String) result[2],
-                        ((BigDecimal) result[3]).doubleValue()
-                ))
-                .collect(Collectors.toList());
+        return statsResultCache.get(userId, "category", from, to, () ->
+                rollupRepository.getCategoriesStats(userId, range.from(), range.monthsFrom(), range.monthsTo(), range.toExclusive())
+                        .stream()
+                        .map(result -> new CategoryStatsResponse(
+                                TransactionType.valueOf((String) result[0]),
+                                (String) result[1],
+                                (String) result[2],
+                                ((BigDecimal) result[3]).doubleValue()
+                        ))
+                        .toList());
     }
 
     @Override
     public List<CashboxStatsResponse> getCashboxStats(LocalDate from, LocalDate to) {
-        validateDateRange(from, to);
+        StatsRange range = validateDateRange(from, to);
         UUID userId = securityContextHelper.getLoggedInUser().getId();
-        List<Object[]> results = transactionRepository.getCashboxStats(userId, from, to);
-
-        return results.stream()
-                .map(result -> new CashboxStatsResponse(
-                        (TransactionType) result[0],
-                        (String) result[1],
-                        ((BigDecimal) result[2]).doubleValue()
-                ))
-                .collect(Collectors.toList());
+        return statsResultCache.get(userId, "cashbox", from, to, () ->
+                rollupRepository.getCashboxStats(userId, range.from(), range.monthsFrom(), range.monthsTo(), range.toExclusive())
+                        .stream()
+                        .map(result -> new CashboxStatsResponse(
+                                TransactionType.valueOf((String) result[0]),
+                                (String) result[1],
+                                ((BigDecimal) result[2]).doubleValue()
+                        ))
+                        .toList());
     }
 
     @Override
     public List<Integer> getTransactionHistoryPeriods() {
         UUID userId = securityContextHelper.getLoggedInUser().getId();
-        List<Integer> years = transactionRepository.getTransactionHistoryPeriods(userId);
-        if (years.isEmpty()) {
-            years.add(Year.now().getValue());
-        }
-        return years;
+        return statsResultCache.get(userId, "periods", null, null, () -> {
+            List<Integer> years = rollupRepository.getTransactionHistoryPeriods(userId);
+            if (years.isEmpty()) {
+                years.add(Year.now().getValue());
+            }
+            return years;
+        });
     }
 
     public List<YearlyTransactionSummary> getYearlySummary(int year) {
         UUID loggedInUserId = securityContextHelper.getLoggedInUser().getId();
-        List<Object[]> results = transactionRepository.sumAmountByYearGroupedByMonthAndType(year, loggedInUserId);
-        return mapYearlyResults(results, year);
+        LocalDate from = LocalDate.of(year, 1, 1);
+        LocalDate to = from.plusYears(1);
+        return statsResultCache.get(loggedInUserId, "year", from, to.minusDays(1), () -> {
+            List<Object[]> results = monthlyRollupRepository.sumAmountByRangeGroupedByMonthAndType(loggedInUserId, from, to);
+            return mapYearlyResults(results, year);
+        });
     }
 
     public List<MonthlyTransactionSummary> getMonthlySummary(int year, int month) {
         UUID loggedInUserId = securityContextHelper.getLoggedInUser().getId();
-        List<Object[]> results = transactionRepository.sumAmountByMonthGroupedByDayAndType(year, month, loggedInUserId);
-        return mapMonthlyResults(results, year, month);
+        LocalDate from = LocalDate.of(year, month, 1);
+        LocalDate to = from.plusMonths(1);
+        return statsResultCache.get(loggedInUserId, "month", from, to.minusDays(1), () -> {
+            List<Object[]> results = rollupRepository.sumAmountByRangeGroupedByDayAndType(loggedInUserId, from, to);
+            return mapMonthlyResults(results, year, month);
+        });
     }
 
     private List<YearlyTransactionSummary> mapYearlyResults(List<Object[]> results, int year) {
@@ -168,9 +186,10 @@ public class StatsServiceImpl implements StatsService {
         return summaryList;
     }
 
-    public void validateDateRange(LocalDate from, LocalDate to) {
-        if (ChronoUnit.DAYS.between(from, to) > 90) {
-            throw new UnsupportedException("Date range cannot exceed 90 days.");
+    public StatsRange validateDateRange(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new UnsupportedException("Date range start cannot be after its end.");
         }
+        return StatsRange.of(from, to);
     }
 }
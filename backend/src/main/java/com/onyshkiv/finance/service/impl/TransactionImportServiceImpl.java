@@ -0,0 +1,284 @@
+package com.onyshkiv.finance.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.onyshkiv.finance.exception.NotFoundException;
+import com.onyshkiv.finance.exception.UnsupportedException;
+import com.onyshkiv.finance.model.dto.CashboxLedgerEntryDto;
+import com.onyshkiv.finance.model.dto.ImportedTransactionRow;
+import com.onyshkiv.finance.model.dto.response.TransactionImportResponse;
+import com.onyshkiv.finance.model.entity.Cashbox;
+import com.onyshkiv.finance.model.entity.CashboxLedgerEntryType;
+import com.onyshkiv.finance.model.entity.Category;
+import com.onyshkiv.finance.model.entity.Currency;
+import com.onyshkiv.finance.model.entity.Transaction;
+import com.onyshkiv.finance.model.entity.TransactionImportFormat;
+import com.onyshkiv.finance.model.entity.TransactionType;
+import com.onyshkiv.finance.repository.CashboxLedgerRepository;
+import com.onyshkiv.finance.repository.CategoryRepository;
+import com.onyshkiv.finance.repository.TransactionJdbcRepository;
+import com.onyshkiv.finance.security.CustomUserDetails;
+import com.onyshkiv.finance.security.SecurityContextHelper;
+import com.onyshkiv.finance.service.CashboxService;
+import com.onyshkiv.finance.service.CurrencyService;
+import com.onyshkiv.finance.service.StatsRollupService;
+import com.onyshkiv.finance.service.TransactionImportService;
+import com.onyshkiv.finance.service.TransactionService;
+import com.onyshkiv.finance.util.CsvTransactionImportParser;
+import com.onyshkiv.finance.util.JsonTransactionImportParser;
+import com.onyshkiv.finance.util.OfxTransactionImportParser;
+import com.onyshkiv.finance.util.TransactionImportParser;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import static com.onyshkiv.finance.model.entity.TransactionType.EXPENSE;
+
+/**
+ * Imports bank exports into one cashbox. The file is parsed as a stream, categories and the cashbox are resolved once,
+ * transactions are inserted in JDBC batches through the idempotent external id path, and the balance changes are
+ * appended to the cashbox ledger as one entry per day at the end of the import.
+ */
+@Service
+@Slf4j
+@Transactional(readOnly = true)
+public class TransactionImportServiceImpl implements TransactionImportService {
+    private static final int BATCH_SIZE = 1000;
+    private static final int MAX_DESCRIPTION_LENGTH = 255;
+    private static final int MAX_EXTERNAL_ID_LENGTH = 255;
+
+    private final SecurityContextHelper securityContextHelper;
+    private final CashboxService cashboxService;
+    private final CategoryRepository categoryRepository;
+    private final TransactionService transactionService;
+    private final CurrencyService currencyService;
+    private final TransactionJdbcRepository transactionJdbcRepository;
+    private final CashboxLedgerRepository cashboxLedgerRepository;
+    private final StatsRollupService statsRollupService;
+    private final UserCurrencyLock userCurrencyLock;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<TransactionImportFormat, TransactionImportParser> parsers = new EnumMap<>(TransactionImportFormat.class);
+
+    @Autowired
+    public TransactionImportServiceImpl(SecurityContextHelper securityContextHelper, CashboxService cashboxService, CategoryRepository categoryRepository,
+                                        TransactionService transactionService, CurrencyService currencyService, TransactionJdbcRepository transactionJdbcRepository,
+                                        CashboxLedgerRepository cashboxLedgerRepository, StatsRollupService statsRollupService, UserCurrencyLock userCurrencyLock,
+                                        ObjectMapper objectMapper, PlatformTransactionManager transactionManager) {
+        this.securityContextHelper = securityContextHelper;
+        this.cashboxService = cashboxService;
+        this.categoryRepository = categoryRepository;
+        this.transactionService = transactionService;
+        this.currencyService = currencyService;
+        this.transactionJdbcRepository = transactionJdbcRepository;
+        this.cashboxLedgerRepository = cashboxLedgerRepository;
+        this.statsRollupService = statsRollupService;
+        this.userCurrencyLock = userCurrencyLock;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        parsers.put(TransactionImportFormat.CSV, new CsvTransactionImportParser());
+        parsers.put(TransactionImportFormat.JSON, new JsonTransactionImportParser(objectMapper));
+        parsers.put(TransactionImportFormat.OFX, new OfxTransactionImportParser());
+    }
+
+    /**
+     * Reads the file twice: first with no database transaction open, to download the exchange rates of every row
+     * that needs one, and then inside the write transaction, which only reads cached rates. Rate downloads therefore
+     * never hold the user row lock or a second pool connection.
+     */
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public TransactionImportResponse importTransactions(UUID cashboxId, TransactionImportFormat format, InputStreamSource source) throws IOException {
+        CustomUserDetails loggedInUser = securityContextHelper.getLoggedInUser();
+        prefetchRates(userCashbox(cashboxId, loggedInUser.getId()), loggedInUser.getCurrency(), format, source);
+        try {
+            return transactionTemplate.execute(status -> {
+                try {
+                    return importRows(userCashbox(cashboxId, loggedInUser.getId()), loggedInUser.getId(), format, source);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void prefetchRates(Cashbox cashbox, Currency userCurrency, TransactionImportFormat format, InputStreamSource source) throws IOException {
+        Set<LocalDate> rateDates = new HashSet<>();
+        try (InputStream inputStream = source.getInputStream()) {
+            parsers.get(format).parse(inputStream, row -> {
+                Currency currency = row.currency() != null ? row.currency() : cashbox.getCurrency();
+                if (row.date() != null && (!userCurrency.equals(currency) || !userCurrency.equals(cashbox.getCurrency()))) {
+                    rateDates.add(row.date());
+                }
+            });
+        }
+        if (!rateDates.isEmpty()) {
+            currencyService.prefetchRates(rateDates);
+        }
+    }
+
+    private TransactionImportResponse importRows(Cashbox cashbox, UUID userId, TransactionImportFormat format, InputStreamSource source) throws IOException {
+        Currency userCurrency = userCurrencyLock.lockCurrency(userId);
+        ImportState state = new ImportState(cashbox, userId, userCurrency, userCategories(userId));
+        try (InputStream inputStream = source.getInputStream()) {
+            parsers.get(format).parse(inputStream, state::add);
+        }
+        state.flush();
+
+        List<CashboxLedgerEntryDto> ledgerEntries = state.balanceDeltas.entrySet().stream()
+                .filter(entry -> entry.getValue().signum() != 0)
+                .map(entry -> new CashboxLedgerEntryDto(cashbox.getId(), entry.getValue(), CashboxLedgerEntryType.TRANSACTION, null, entry.getKey()))
+                .toList();
+        cashboxLedgerRepository.appendAll(ledgerEntries);
+
+        log.info("TransactionImportService importTransactions : imported {} of {} {} rows into cashbox {}, {} duplicates skipped",
+                state.imported, state.received, format, cashbox.getId(), state.received - state.imported);
+        return new TransactionImportResponse(state.received, state.imported, state.received - state.imported);
+    }
+
+    private Cashbox userCashbox(UUID cashboxId, UUID userId) {
+        Cashbox cashbox = cashboxService.getCashbox(cashboxId);
+        if (!cashbox.getUserId().equals(userId)) {
+            log.error("TransactionImportService importTransactions : cashbox {} does not belong to user {}", cashboxId, userId);
+            throw new NotFoundException(String.format("Cashbox not found with id %s", cashboxId));
+        }
+        return cashbox;
+    }
+
+    private Map<String, Category> userCategories(UUID userId) {
+        Map<String, Category> categories = new HashMap<>();
+        for (TransactionType type : TransactionType.values()) {
+            categoryRepository.findAllByUserIdAndType(userId, type)
+                    .forEach(category -> categories.putIfAbsent(categoryKey(type, category.getName()), category));
+        }
+        return categories;
+    }
+
+    private static String categoryKey(TransactionType type, String name) {
+        return type.name() + ":" + name.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private final class ImportState {
+        private final Cashbox cashbox;
+        private final UUID userId;
+        private final Currency userCurrency;
+        private final Map<String, Category> categories;
+        private final List<ImportedTransactionRow> pending = new ArrayList<>(BATCH_SIZE);
+        private final Map<LocalDate, BigDecimal> balanceDeltas = new TreeMap<>();
+        private int received;
+        private int imported;
+
+        private ImportState(Cashbox cashbox, UUID userId, Currency userCurrency, Map<String, Category> categories) {
+            this.cashbox = cashbox;
+            this.userId = userId;
+            this.userCurrency = userCurrency;
+            this.categories = categories;
+        }
+
+        private void add(ImportedTransactionRow row) {
+            received++;
+            if (row.date() == null || row.amount() == null) {
+                throw new UnsupportedException("Imported transaction " + received + " should have date and amount");
+            }
+            pending.add(row);
+            if (pending.size() >= BATCH_SIZE) {
+                flush();
+            }
+        }
+
+        private void flush() {
+            if (pending.isEmpty()) {
+                return;
+            }
+            List<Transaction> transactions = pending.stream().map(this::transaction).toList();
+            List<Transaction> inserted = transactionJdbcRepository.insertAllIfAbsent(transactions);
+            for (Transaction transaction : inserted) {
+                BigDecimal amount = cashboxAmount(transaction);
+                balanceDeltas.merge(transaction.getTransactionDate(), EXPENSE.equals(transaction.getType()) ? amount.negate() : amount, BigDecimal::add);
+            }
+            statsRollupService.addTransactions(inserted);
+            imported += inserted.size();
+            pending.clear();
+        }
+
+        private Transaction transaction(ImportedTransactionRow row) {
+            TransactionType type = row.type() != null ? row.type() : row.amount().signum() < 0 ? EXPENSE : TransactionType.INCOME;
+            Transaction transaction = Transaction.builder()
+                    .id(UUID.randomUUID())
+                    .userId(userId)
+                    .type(type)
+                    .category(row.category() != null ? categories.get(categoryKey(type, row.category())) : null)
+                    .cashbox(cashbox)
+                    .description(description(row.description()))
+                    .transactionDate(row.date())
+                    .externalId(externalId(row.externalId()))
+                    .build();
+            transactionService.setTransactionAmountInternal(row.amount().abs(), currency(row), userCurrency, transaction);
+            return transaction;
+        }
+
+        private Currency currency(ImportedTransactionRow row) {
+            return row.currency() != null ? row.currency() : cashbox.getCurrency();
+        }
+
+        /**
+         * Scopes the bank's id to the cashbox; ids that would not fit the column are replaced by their SHA-256 digest,
+         * which keeps re-imports of the same file idempotent.
+         */
+        private String externalId(String rowExternalId) {
+            if (rowExternalId == null) {
+                return null;
+            }
+            String externalId = cashbox.getId() + ":" + rowExternalId;
+            if (externalId.length() <= MAX_EXTERNAL_ID_LENGTH) {
+                return externalId;
+            }
+            try {
+                byte[] digest = MessageDigest.getInstance("SHA-256").digest(rowExternalId.getBytes(StandardCharsets.UTF_8));
+                return cashbox.getId() + ":sha256:" + HexFormat.of().formatHex(digest);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 is not available", e);
+            }
+        }
+
+        private BigDecimal cashboxAmount(Transaction transaction) {
+            if (transaction.getBaseCurrency().equals(cashbox.getCurrency())) {
+                return transaction.getBaseAmount();
+            } else if (userCurrency.equals(cashbox.getCurrency())) {
+                return transaction.getAmount();
+            }
+            return currencyService.convert(transaction.getAmount(), userCurrency, cashbox.getCurrency(), transaction.getTransactionDate());
+        }
+
+        private String description(String description) {
+            if (description == null || description.length() <= MAX_DESCRIPTION_LENGTH) {
+                return description;
+            }
+            return description.substring(0, MAX_DESCRIPTION_LENGTH);
+        }
+    }
+}
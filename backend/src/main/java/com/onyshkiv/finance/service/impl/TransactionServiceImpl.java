@@ -1,33 +1,57 @@
 package com.onyshkiv.finance.service.impl;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.Lists;
 import com.onyshkiv.finance.exception.NotFoundException;
 import com.onyshkiv.finance.exception.UnsupportedException;
+import com.onyshkiv.finance.model.dto.CashboxLedgerEntryDto;
 import com.onyshkiv.finance.model.dto.CategoryDto;
+import com.onyshkiv.finance.model.dto.TransactionAmountDto;
 import com.onyshkiv.finance.model.dto.TransactionDto;
+import com.onyshkiv.finance.model.dto.response.TransactionPageResponse;
 import com.onyshkiv.finance.model.entity.Cashbox;
+import com.onyshkiv.finance.model.entity.CashboxLedgerEntryType;
 import com.onyshkiv.finance.model.entity.Currency;
 import com.onyshkiv.finance.model.entity.Transaction;
 import com.onyshkiv.finance.model.entity.TransactionType;
+import com.onyshkiv.finance.repository.CashboxLedgerRepository;
+import com.onyshkiv.finance.repository.TransactionJdbcRepository;
 import com.onyshkiv.finance.repository.TransactionRepository;
 import com.onyshkiv.finance.security.CustomUserDetails;
 import com.onyshkiv.finance.security.SecurityContextHelper;
 import com.onyshkiv.finance.service.CashboxService;
 import com.onyshkiv.finance.service.CategoryService;
 import com.onyshkiv.finance.service.CurrencyService;
+import com.onyshkiv.finance.service.StatsRollupService;
 import com.onyshkiv.finance.service.TransactionService;
 import com.onyshkiv.finance.util.ApplicationMapper;
+import com.onyshkiv.finance.util.CurrencyChangeJob;
+import com.onyshkiv.finance.util.KeysetCursor;
+import jakarta.persistence.EntityManager;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static com.onyshkiv.finance.model.entity.TransactionType.EXPENSE;
 
@@ -35,21 +59,39 @@ import static com.onyshkiv.finance.model.entity.TransactionType.EXPENSE;
 @Slf4j
 @Transactional(readOnly = true)
 public class TransactionServiceImpl implements TransactionService {
+    private static final int AMOUNT_UPDATE_CHUNK_SIZE = 500;
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 200;
+    private static final int STREAM_FLUSH_INTERVAL = 200;
+
     private final TransactionRepository transactionRepository;
+    private final TransactionJdbcRepository transactionJdbcRepository;
     private final SecurityContextHelper securityContextHelper;
     private final ApplicationMapper applicationMapper;
     private final CategoryService categoryService;
     private final CurrencyService currencyService;
     private final CashboxService cashboxService;
+    private final StatsRollupService statsRollupService;
+    private final ObjectMapper objectMapper;
+    private final EntityManager entityManager;
+    private final CashboxLedgerRepository cashboxLedgerRepository;
+    private final UserCurrencyLock userCurrencyLock;
 
     @Autowired
-    public TransactionServiceImpl(TransactionRepository transactionRepository, SecurityContextHelper securityContextHelper, ApplicationMapper applicationMapper, CategoryService categoryService, CurrencyService currencyService, CashboxService cashboxService) {
+    public TransactionServiceImpl(TransactionRepository transactionRepository, TransactionJdbcRepository transactionJdbcRepository, SecurityContextHelper securityContextHelper, ApplicationMapper applicationMapper, CategoryService categoryService, CurrencyService currencyService, CashboxService cashboxService, StatsRollupService statsRollupService, ObjectMapper objectMapper, EntityManager entityManager,
+                                  CashboxLedgerRepository cashboxLedgerRepository, UserCurrencyLock userCurrencyLock) {
         this.transactionRepository = transactionRepository;
+        this.transactionJdbcRepository = transactionJdbcRepository;
         this.securityContextHelper = securityContextHelper;
         this.applicationMapper = applicationMapper;
         this.categoryService = categoryService;
         this.currencyService = currencyService;
         this.cashboxService = cashboxService;
+        this.statsRollupService = statsRollupService;
+        this.cashboxLedgerRepository = cashboxLedgerRepository;
+        this.userCurrencyLock = userCurrencyLock;
+        this.objectMapper = objectMapper;
+        this.entityManager = entityManager;
     }
 
     @Transactional
@@ -67,15 +109,18 @@ public class TransactionServiceImpl implements TransactionService {
         transaction.setCategory(categoryService.getCategory(transactionDto.getCategory().getId()));
         transaction.setCashbox(cashboxService.getCashbox(transactionDto.getCashbox().getId()));
         transaction.setUserId(loggedInUser.getId());
+        Currency userCurrency = userCurrencyLock.lockCurrency(loggedInUser.getId());
 
 //        setTransactionAmountInternal(transactionDto.getAmount(), transactionDto.getCurrency(), loggedInUser.getCurrency(), transaction);
         transaction.setBaseCurrency(transactionDto.getCurrency());
         transaction.setBaseAmount(transactionDto.getAmount());
-        transaction.setCoefficientCurrency(loggedInUser.getCurrency());
+        transaction.setCoefficientCurrency(userCurrency);
         transaction.setAmount(transactionDto.getCoefficient().multiply(transactionDto.getAmount()));
+        convertIfBaseCurrencyChanged(transaction, transactionDto, loggedInUser.getCurrency(), userCurrency);
         Transaction savedTransaction = transactionRepository.save(transaction);
 
-        applyTransactionToCashboxBalance(savedTransaction, loggedInUser.getCurrency());
+        applyTransactionToCashboxBalance(savedTransaction, userCurrency);
+        statsRollupService.addTransaction(savedTransaction);
         log.info("TransactionService save : transaction successfully saved : {}", savedTransaction);
         return applicationMapper.transactionToTransactionDto(transaction);
     }
@@ -84,6 +129,7 @@ public class TransactionServiceImpl implements TransactionService {
     @Override
     public TransactionDto updateTransaction(UUID id, TransactionDto transactionDto) {
         CustomUserDetails loggedInUser = securityContextHelper.getLoggedInUser();
+        Currency userCurrency = userCurrencyLock.lockCurrency(loggedInUser.getId());
 
         Transaction transaction = getTransaction(id);
         if (!categoryService.validateCategoryType(transactionDto.getCategory().getId(), transaction.getType())) {
@@ -91,24 +137,37 @@ public class TransactionServiceImpl implements TransactionService {
                     transaction.getType()));
         }
 
+        statsRollupService.removeTransaction(transaction);
+        rollbackTransactionFromCashboxBalance(transaction, userCurrency);
         transaction.setTransactionDate(transactionDto.getTransactionDate());
         transaction.setCategory(categoryService.getCategory(transactionDto.getCategory().getId()));
 //        if (!transaction.getAmount().equals(transactionDto.getAmount())) {
-        rollbackTransactionFromCashboxBalance(transaction, loggedInUser.getCurrency());
 //            setTransactionAmountInternal(transactionDto.getAmount(), transactionDto.getCurrency(), loggedInUser.getCurrency(), transaction);
         transaction.setBaseCurrency(transactionDto.getCurrency());
         transaction.setAmount(transactionDto.getCoefficient().multiply(transactionDto.getAmount()));
         transaction.setCoefficient(transactionDto.getCoefficient());
-        transaction.setCoefficientCurrency(loggedInUser.getCurrency());
+        transaction.setCoefficientCurrency(userCurrency);
+        convertIfBaseCurrencyChanged(transaction, transactionDto, loggedInUser.getCurrency(), userCurrency);
         transaction.setCashbox(cashboxService.getCashbox(transactionDto.getCashbox().getId()));
-        applyTransactionToCashboxBalance(transaction, loggedInUser.getCurrency());
+        applyTransactionToCashboxBalance(transaction, userCurrency);
 //        }
 
         transaction.setDescription(transactionDto.getDescription());
+        statsRollupService.addTransaction(transaction);
 
         return applicationMapper.transactionToTransactionDto(transaction);
     }
 
+    /**
+     * The client computes the coefficient for the currency of its session; if the base currency changed since then,
+     * the amount is converted again with the current rate.
+     */
+    private void convertIfBaseCurrencyChanged(Transaction transaction, TransactionDto transactionDto, Currency sessionCurrency, Currency userCurrency) {
+        if (!userCurrency.equals(sessionCurrency)) {
+            setTransactionAmountInternal(transactionDto.getAmount(), transactionDto.getCurrency(), userCurrency, transaction);
+        }
+    }
+
     private void applyTransactionToCashboxBalance(Transaction transaction, Currency userCurrency) {
         applyTransactionToCashbox(transaction, userCurrency, false);
     }
@@ -119,19 +178,18 @@ public class TransactionServiceImpl implements TransactionService {
 
     private void applyTransactionToCashbox(Transaction transaction, Currency userCurrency, boolean reverse) {
         Cashbox cashbox = transaction.getCashbox();
-        BigDecimal balance = cashbox.getBalance();
         BigDecimal amount = calculateCurrencyAmountForTransactionCashbox(transaction, userCurrency);
 
+        BigDecimal delta;
         if (transaction.getType() == EXPENSE) {
-//            if (balance.compareTo(amount) < 0 && !reverse){
-//                throw new UnsupportedException("Cashbox balance is not enough!");
-//            }
-            balance = reverse ? balance.add(amount) : balance.subtract(amount);
+            delta = reverse ? amount : amount.negate();
         } else {
-            balance = reverse ? balance.subtract(amount) : balance.add(amount);
+            delta = reverse ? amount.negate() : amount;
         }
 
-        cashbox.setBalance(balance);
+        cashboxLedgerRepository.append(new CashboxLedgerEntryDto(cashbox.getId(), delta, CashboxLedgerEntryType.TRANSACTION,
+                transaction.getId(), transaction.getTransactionDate()));
+        cashbox.setBalance(cashboxLedgerRepository.currentBalance(cashbox.getId()));
     }
 
     private BigDecimal calculateCurrencyAmountForTransactionCashbox(Transaction transaction, Currency userCurrency) {
@@ -150,8 +208,9 @@ public class TransactionServiceImpl implements TransactionService {
     @Transactional
     @Override
     public void deleteTransaction(UUID id) {
-        Currency userCurrency = securityContextHelper.getLoggedInUser().getCurrency();
+        Currency userCurrency = userCurrencyLock.lockCurrency(securityContextHelper.getLoggedInUser().getId());
         Transaction transaction = getTransaction(id);
+        statsRollupService.removeTransaction(transaction);
         transactionRepository.deleteById(id);
         rollbackTransactionFromCashboxBalance(transaction, userCurrency);
 
@@ -197,16 +256,67 @@ public class TransactionServiceImpl implements TransactionService {
         UUID userId = securityContextHelper.getLoggedInUser().getId();
         return transactionRepository.findUserTransactionByDateRange(userId, from, to)
                 .stream()
-                .map(transaction -> {
-                    TransactionDto transactionDto = applicationMapper.transactionToTransactionDto(transaction);
-                    if (transactionDto.getCategory() == null) {
-                        transactionDto.setCategory(new CategoryDto(UUID.randomUUID(), "Other", transactionDto.getType(), null, Collections.emptySet()));
-                    }
-                    return transactionDto;
-                })
+                .map(this::transactionToListItem)
                 .toList();
     }
 
+    @Override
+    public TransactionPageResponse getUserTransactionsPage(LocalDate from, LocalDate to, TransactionType transactionType, String cursor, Integer size) {
+        UUID userId = securityContextHelper.getLoggedInUser().getId();
+        int pageSize = size == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        Collection<TransactionType> types = transactionTypes(transactionType);
+        Limit limit = Limit.of(pageSize + 1);
+
+        List<Transaction> transactions;
+        if (cursor == null) {
+            transactions = transactionRepository.findUserTransactionsFirstPage(userId, from, to.plusDays(1), types, limit);
+        } else {
+            KeysetCursor position = KeysetCursor.decode(cursor);
+            transactions = transactionRepository.findUserTransactionsAfterCursor(userId, from, to.plusDays(1), types,
+                    position.date(), position.id(), limit);
+        }
+
+        boolean hasNext = transactions.size() > pageSize;
+        List<Transaction> page = hasNext ? transactions.subList(0, pageSize) : transactions;
+        String nextCursor = null;
+        if (hasNext) {
+            Transaction last = page.get(page.size() - 1);
+            nextCursor = new KeysetCursor(last.getTransactionDate(), last.getId()).encode();
+        }
+        return new TransactionPageResponse(page.stream().map(this::transactionToListItem).toList(), nextCursor);
+    }
+
+    @Override
+    public void streamUserTransactions(LocalDate from, LocalDate to, TransactionType transactionType, OutputStream outputStream) throws IOException {
+        UUID userId = securityContextHelper.getLoggedInUser().getId();
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream);
+             Stream<Transaction> transactions = transactionRepository.streamUserTransactions(userId, from, to.plusDays(1), transactionTypes(transactionType))) {
+            generator.writeStartArray();
+            int written = 0;
+            for (Transaction transaction : (Iterable<Transaction>) transactions::iterator) {
+                generator.writeObject(transactionToListItem(transaction));
+                entityManager.detach(transaction);
+                if (++written % STREAM_FLUSH_INTERVAL == 0) {
+                    generator.flush();
+                }
+            }
+            generator.writeEndArray();
+            log.info("TransactionService streamUserTransactions : streamed {} transactions of user {}", written, userId);
+        }
+    }
+
+    private static Collection<TransactionType> transactionTypes(TransactionType transactionType) {
+        return transactionType == null ? EnumSet.allOf(TransactionType.class) : EnumSet.of(transactionType);
+    }
+
+    private TransactionDto transactionToListItem(Transaction transaction) {
+        TransactionDto transactionDto = applicationMapper.transactionToTransactionDto(transaction);
+        if (transactionDto.getCategory() == null) {
+            transactionDto.setCategory(new CategoryDto(UUID.randomUUID(), "Other", transactionDto.getType(), null, Collections.emptySet()));
+        }
+        return transactionDto;
+    }
+
     @Override
     public void setTransactionAmountInternal(BigDecimal amount, Currency transactionCurrency, Currency userBaseCurrency, Transaction transaction) {
         transaction.setBaseAmount(amount);
@@ -232,18 +342,71 @@ public class TransactionServiceImpl implements TransactionService {
         }
     }
 
-    public void updateAmountAfterUserBaseCurrencyChange(Currency currencyToConvert) {
-        CustomUserDetails loggedInUser = securityContextHelper.getLoggedInUser();
-        List<Transaction> userTransactions = transactionRepository.findAllByUserId(loggedInUser.getId());
-        for (Transaction transaction : userTransactions) {
-            if (transaction.getBaseCurrency().equals(currencyToConvert)) {
-                transaction.setAmount(transaction.getBaseAmount());
-            } else if (transaction.getCoefficientCurrency() != null && transaction.getCoefficient() != null && transaction.getCoefficientCurrency().equals(currencyToConvert)) {
-                transaction.setAmount(transaction.getBaseAmount().multiply(transaction.getCoefficient()));
-            } else {
-                transaction.setAmount(currencyService.convert(transaction.getBaseAmount(), transaction.getBaseCurrency(), currencyToConvert, transaction.getTransactionDate()));
-            }
+    /**
+     * Downloads the rates a base currency change will need without holding a database transaction open,
+     * so {@link #updateAmountAfterUserBaseCurrencyChange} only reads cached rates.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @Override
+    public void prefetchRatesForBaseCurrencyChange(UUID userId, Currency currencyToConvert) {
+        Set<LocalDate> dates = rateKeysToConvert(transactionJdbcRepository.findAllAmountsByUserId(userId), currencyToConvert).stream()
+                .map(RateKey::date)
+                .collect(Collectors.toSet());
+        currencyService.prefetchRates(dates);
+    }
+
+    @Transactional
+    @Override
+    public void updateAmountAfterUserBaseCurrencyChange(UUID userId, Currency currencyToConvert, CurrencyChangeJob job) {
+        List<TransactionAmountDto> userTransactions = transactionJdbcRepository.findAllAmountsByUserId(userId);
+        log.info("TransactionService updateAmountAfterUserBaseCurrencyChange : converting {} transactions of user {} to {}",
+                userTransactions.size(), userId, currencyToConvert);
+
+        Map<RateKey, BigDecimal> rates = rateKeysToConvert(userTransactions, currencyToConvert).stream()
+                .collect(Collectors.toMap(key -> key, key -> currencyService.getExchangeRate(key.currency(), currencyToConvert, key.date())));
+
+        List<Map.Entry<UUID, BigDecimal>> amountsToWrite = userTransactions.parallelStream()
+                .map(transaction -> {
+                    BigDecimal newAmount = convertedAmount(transaction, currencyToConvert, rates);
+                    boolean unchanged = transaction.amount() != null && transaction.amount().compareTo(newAmount) == 0;
+                    return unchanged ? null : Map.entry(transaction.id(), newAmount);
+                })
+                .filter(Objects::nonNull)
+                .toList();
+        job.setTotal(amountsToWrite.size());
+
+        int updated = 0;
+        for (List<Map.Entry<UUID, BigDecimal>> chunk : Lists.partition(amountsToWrite, AMOUNT_UPDATE_CHUNK_SIZE)) {
+            transactionJdbcRepository.updateAmounts(chunk);
+            updated += chunk.size();
+            job.addConverted(chunk.size());
+            log.info("TransactionService updateAmountAfterUserBaseCurrencyChange : updated {}/{} transactions of user {}",
+                    updated, amountsToWrite.size(), userId);
+        }
+        statsRollupService.rebuildUserRollups(userId);
+    }
+
+    private Set<RateKey> rateKeysToConvert(List<TransactionAmountDto> transactions, Currency currencyToConvert) {
+        return transactions.stream()
+                .filter(transaction -> !transaction.baseCurrency().equals(currencyToConvert) && !hasCoefficientFor(transaction, currencyToConvert))
+                .map(transaction -> new RateKey(transaction.transactionDate(), transaction.baseCurrency()))
+                .collect(Collectors.toSet());
+    }
+
+    private boolean hasCoefficientFor(TransactionAmountDto transaction, Currency currency) {
+        return transaction.coefficient() != null && currency.equals(transaction.coefficientCurrency());
+    }
+
+    private BigDecimal convertedAmount(TransactionAmountDto transaction, Currency currencyToConvert, Map<RateKey, BigDecimal> rates) {
+        if (transaction.baseCurrency().equals(currencyToConvert)) {
+            return transaction.baseAmount();
         }
-        transactionRepository.saveAll(userTransactions);
+        BigDecimal rate = hasCoefficientFor(transaction, currencyToConvert)
+                ? transaction.coefficient()
+                : rates.get(new RateKey(transaction.transactionDate(), transaction.baseCurrency()));
+        return transaction.baseAmount().multiply(rate).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    private record RateKey(LocalDate date, Currency currency) {
     }
 }
@@ -0,0 +1,40 @@
+package com.onyshkiv.finance.service.impl;
+
+import com.onyshkiv.finance.exception.NotFoundException;
+import com.onyshkiv.finance.model.entity.Currency;
+import com.onyshkiv.finance.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Reads the base currency of users for writers that store amounts in it. The currency stays locked until the caller's
+ * transaction ends, so a concurrent base currency change cannot miss the written amounts.
+ */
+@Component
+public class UserCurrencyLock {
+    private final UserRepository userRepository;
+
+    @Autowired
+    public UserCurrencyLock(UserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    public Map<UUID, Currency> lockCurrencies(Collection<UUID> userIds) {
+        return userRepository.findCurrenciesForShare(userIds).stream()
+                .collect(Collectors.toMap(UserRepository.UserCurrency::getId, user -> Currency.valueOf(user.getCurrency())));
+    }
+
+    public Currency lockCurrency(UUID userId) {
+        Currency currency = lockCurrencies(List.of(userId)).get(userId);
+        if (currency == null) {
+            throw new NotFoundException("User not found with id " + userId);
+        }
+        return currency;
+    }
+}
@@ -1,36 +1,123 @@
 package com.onyshkiv.finance.service.impl;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.onyshkiv.finance.exception.DuplicationException;
 import com.onyshkiv.finance.exception.NotFoundException;
+import com.onyshkiv.finance.exception.TooManyRequestsException;
+import com.onyshkiv.finance.model.dto.response.CurrencyChangeJobResponse;
 import com.onyshkiv.finance.model.entity.Currency;
 import com.onyshkiv.finance.model.entity.User;
 import com.onyshkiv.finance.repository.UserRepository;
+import com.onyshkiv.finance.security.CustomUserDetailsService;
 import com.onyshkiv.finance.security.SecurityContextHelper;
 import com.onyshkiv.finance.service.TransactionService;
 import com.onyshkiv.finance.service.UserService;
+import com.onyshkiv.finance.util.CurrencyChangeJob;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Duration;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 @Service
 @Slf4j
 public class UserServiceImpl implements UserService {
+    private static final int CURRENCY_CHANGE_WORKERS = 2;
+    private static final int CURRENCY_CHANGE_QUEUE_CAPACITY = 100;
+
     private final UserRepository userRepository;
     private final TransactionService transactionService;
     private final SecurityContextHelper securityContextHelper;
+    private final TransactionTemplate transactionTemplate;
+    private final CustomUserDetailsService userDetailsService;
+
+    private final ExecutorService currencyChangeExecutor = new ThreadPoolExecutor(
+            CURRENCY_CHANGE_WORKERS, CURRENCY_CHANGE_WORKERS, 0L, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(CURRENCY_CHANGE_QUEUE_CAPACITY));
+    private final Cache<UUID, CurrencyChangeJob> currencyChangeJobs = CacheBuilder.newBuilder()
+            .expireAfterWrite(Duration.ofDays(1))
+            .maximumSize(10_000)
+            .build();
+    private final Map<UUID, CurrencyChangeJob> activeJobsByUser = new ConcurrentHashMap<>();
 
-    public UserServiceImpl(UserRepository userRepository, TransactionService transactionService, SecurityContextHelper securityContextHelper) {
+    public UserServiceImpl(UserRepository userRepository, TransactionService transactionService, SecurityContextHelper securityContextHelper,
+                           PlatformTransactionManager transactionManager, CustomUserDetailsService userDetailsService) {
         this.userRepository = userRepository;
         this.transactionService = transactionService;
         this.securityContextHelper = securityContextHelper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.userDetailsService = userDetailsService;
+    }
+
+    @Override
+    public CurrencyChangeJobResponse changeUserBaseCurrency(Currency currencyToConvert) {
+        UUID userId = securityContextHelper.getLoggedInUser().getId();
+        CurrencyChangeJob job = new CurrencyChangeJob(userId, currencyToConvert);
+        CurrencyChangeJob activeJob = activeJobsByUser.putIfAbsent(userId, job);
+        if (activeJob != null) {
+            if (!activeJob.getCurrency().equals(currencyToConvert)) {
+                throw new DuplicationException("Currency change to " + activeJob.getCurrency() + " is already in progress");
+            }
+            return activeJob.toResponse();
+        }
+
+        currencyChangeJobs.put(job.getId(), job);
+        try {
+            currencyChangeExecutor.execute(() -> runCurrencyChange(job));
+        } catch (RejectedExecutionException e) {
+            currencyChangeJobs.invalidate(job.getId());
+            activeJobsByUser.remove(userId, job);
+            throw new TooManyRequestsException("Too many currency changes in progress, try again later");
+        }
+        log.info("UserService changeUserBaseCurrency : scheduled job {} converting user {} to {}", job.getId(), userId, currencyToConvert);
+        return job.toResponse();
     }
 
-    @Transactional
-    public void changeUserBaseCurrency(Currency currencyToConvert) {
+    @Override
+    public CurrencyChangeJobResponse getCurrencyChangeJob(UUID jobId) {
         UUID userId = securityContextHelper.getLoggedInUser().getId();
-        User user = userRepository.findById(userId).orElseThrow(() -> new NotFoundException("User not found with id " + userId));
-        user.setCurrency(currencyToConvert);
-        transactionService.updateAmountAfterUserBaseCurrencyChange(currencyToConvert);
+        CurrencyChangeJob job = currencyChangeJobs.getIfPresent(jobId);
+        if (job == null || !job.getUserId().equals(userId)) {
+            throw new NotFoundException("Currency change job not found with id " + jobId);
+        }
+        return job.toResponse();
+    }
+
+    private void runCurrencyChange(CurrencyChangeJob job) {
+        job.start();
+        try {
+            transactionService.prefetchRatesForBaseCurrencyChange(job.getUserId(), job.getCurrency());
+            String login = transactionTemplate.execute(status -> {
+                User user = userRepository.findByIdForUpdate(job.getUserId())
+                        .orElseThrow(() -> new NotFoundException("User not found with id " + job.getUserId()));
+                user.setCurrency(job.getCurrency());
+                transactionService.updateAmountAfterUserBaseCurrencyChange(job.getUserId(), job.getCurrency(), job);
+                return user.getLogin();
+            });
+            userDetailsService.evict(login);
+            job.complete();
+            log.info("UserService runCurrencyChange : job {} converted user {} to {}", job.getId(), job.getUserId(), job.getCurrency());
+        } catch (Exception e) {
+            job.fail(e.getMessage());
+            log.error("UserService runCurrencyChange : job {} failed for user {}", job.getId(), job.getUserId(), e);
+        } finally {
+            activeJobsByUser.remove(job.getUserId(), job);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        currencyChangeExecutor.shutdown();
     }
 }
@@ -7,6 +7,8 @@ import com.onyshkiv.finance.model.dto.monobank.MonobankCardResponse;
 import com.onyshkiv.finance.model.dto.monobank.MonobankClientDto;
 import com.onyshkiv.finance.model.dto.request.CashboxRequest;
 import com.onyshkiv.finance.model.dto.request.SignUpRequest;
+import com.onyshkiv.finance.model.dto.response.CashboxActivityPageResponse;
+import com.onyshkiv.finance.model.dto.response.CashboxActivityResponse;
 import com.onyshkiv.finance.model.dto.response.CashboxResponse;
 import com.onyshkiv.finance.model.dto.response.ExtendedCashboxResponse;
 import com.onyshkiv.finance.model.dto.response.TransferResponse;
@@ -129,15 +131,32 @@ public abstract class ApplicationMapper {
                 .build();
     }
 
-    public ExtendedCashboxResponse cashboxToExtendedCashboxResponse(Cashbox cashbox) {
+    public ExtendedCashboxResponse cashboxToExtendedCashboxResponse(Cashbox cashbox, CashboxActivityPageResponse activity) {
         return ExtendedCashboxResponse.builder()
                 .id(cashbox.getId())
                 .userId(cashbox.getUserId())
                 .name(cashbox.getName())
                 .balance(cashbox.getBalance())
                 .currency(cashbox.getCurrency().name())
-                .transactions(cashbox.getTransactions().stream().map(this::transactionToTransactionDto).toList())
-                .transfers(cashbox.getTransfers().stream().map(this::transferToTransferResponse).toList())
+                .activity(activity)
+                .build();
+    }
+
+    public CashboxActivityResponse transactionToCashboxActivityResponse(Transaction transaction) {
+        return CashboxActivityResponse.builder()
+                .activityType(CashboxActivityResponse.ActivityType.TRANSACTION)
+                .id(transaction.getId())
+                .date(transaction.getTransactionDate())
+                .transaction(transactionToTransactionDto(transaction))
+                .build();
+    }
+
+    public CashboxActivityResponse transferToCashboxActivityResponse(Transfer transfer) {
+        return CashboxActivityResponse.builder()
+                .activityType(CashboxActivityResponse.ActivityType.TRANSFER)
+                .id(transfer.getId())
+                .date(transfer.getDate())
+                .transfer(transferToTransferResponse(transfer))
                 .build();
     }
 }
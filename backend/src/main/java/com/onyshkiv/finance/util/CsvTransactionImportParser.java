@@ -0,0 +1,167 @@
+package com.onyshkiv.finance.util;
+
+import com.onyshkiv.finance.exception.UnsupportedException;
+import com.onyshkiv.finance.model.dto.ImportedTransactionRow;
+import com.onyshkiv.finance.model.entity.Currency;
+import com.onyshkiv.finance.model.entity.TransactionType;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Reads CSV with a header row naming the columns {@code date, amount, type, currency, category, description, external_id}.
+ * Only {@code date} and {@code amount} are required. Fields are separated by commas, or by semicolons when the header
+ * has no commas, and may be quoted with {@code "}, including line breaks inside quotes.
+ */
+public final class CsvTransactionImportParser implements TransactionImportParser {
+    private static final char QUOTE = '"';
+
+    @Override
+    public void parse(InputStream inputStream, Consumer<ImportedTransactionRow> consumer) throws IOException {
+        Reader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+        String headerLine = readHeaderLine(reader);
+        if (headerLine == null) {
+            return;
+        }
+        char separator = headerLine.indexOf(',') < 0 && headerLine.indexOf(';') >= 0 ? ';' : ',';
+        Map<String, Integer> columns = columns(splitHeader(headerLine, separator));
+        if (!columns.containsKey("date") || !columns.containsKey("amount")) {
+            throw new UnsupportedException("CSV header should contain date and amount columns");
+        }
+
+        int line = 1;
+        List<String> record;
+        while ((record = readRecord(reader, separator)) != null) {
+            line++;
+            if (record.size() == 1 && record.get(0).isBlank()) {
+                continue;
+            }
+            consumer.accept(toRow(record, columns, line));
+        }
+    }
+
+    private static ImportedTransactionRow toRow(List<String> record, Map<String, Integer> columns, int line) {
+        try {
+            String type = field(record, columns, "type");
+            String currency = field(record, columns, "currency");
+            return new ImportedTransactionRow(
+                    LocalDate.parse(field(record, columns, "date")),
+                    parseAmount(field(record, columns, "amount")),
+                    type != null ? TransactionType.valueOf(type.toUpperCase(Locale.ROOT)) : null,
+                    currency != null ? Currency.valueOf(currency.toUpperCase(Locale.ROOT)) : null,
+                    field(record, columns, "category"),
+                    field(record, columns, "description"),
+                    field(record, columns, "external_id"));
+        } catch (DateTimeParseException | IllegalArgumentException | NullPointerException e) {
+            throw new UnsupportedException("Invalid CSV row at line " + line + ": " + e.getMessage());
+        }
+    }
+
+    static BigDecimal parseAmount(String value) {
+        String amount = value.replace(" ", "").replace("\u00A0", "");
+        if (amount.indexOf(',') >= 0 && amount.indexOf('.') < 0) {
+            amount = amount.replace(',', '.');
+        }
+        return new BigDecimal(amount);
+    }
+
+    private static String field(List<String> record, Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        if (index == null || index >= record.size()) {
+            return null;
+        }
+        String value = record.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private static Map<String, Integer> columns(List<String> header) {
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            String name = header.get(i).trim().toLowerCase(Locale.ROOT).replace("externalid", "external_id");
+            columns.putIfAbsent(name, i);
+        }
+        return columns;
+    }
+
+    private static String readHeaderLine(Reader reader) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int c;
+        while ((c = reader.read()) != -1 && c != '\n') {
+            if (c != '\r') {
+                line.append((char) c);
+            }
+        }
+        if (c == -1 && line.isEmpty()) {
+            return null;
+        }
+        return line.length() > 0 && line.charAt(0) == '\uFEFF' ? line.substring(1) : line.toString();
+    }
+
+    private static List<String> splitHeader(String headerLine, char separator) {
+        List<String> header = new ArrayList<>();
+        for (String column : headerLine.split(String.valueOf(separator), -1)) {
+            String name = column.trim();
+            if (name.length() >= 2 && name.charAt(0) == QUOTE && name.charAt(name.length() - 1) == QUOTE) {
+                name = name.substring(1, name.length() - 1);
+            }
+            header.add(name);
+        }
+        return header;
+    }
+
+    /**
+     * @return fields of the next record, or {@code null} at the end of the input
+     */
+    private static List<String> readRecord(Reader reader, char separator) throws IOException {
+        int c = reader.read();
+        if (c == -1) {
+            return null;
+        }
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        while (c != -1) {
+            if (quoted) {
+                if (c == QUOTE) {
+                    reader.mark(1);
+                    int next = reader.read();
+                    if (next == QUOTE) {
+                        field.append(QUOTE);
+                    } else {
+                        quoted = false;
+                        if (next != -1) {
+                            reader.reset();
+                        }
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == QUOTE && field.isEmpty()) {
+                quoted = true;
+            } else if (c == separator) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n') {
+                break;
+            } else if (c != '\r') {
+                field.append((char) c);
+            }
+            c = reader.read();
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
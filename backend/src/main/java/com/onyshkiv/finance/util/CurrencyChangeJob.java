@@ -0,0 +1,70 @@
+package com.onyshkiv.finance.util;
+
+import com.onyshkiv.finance.model.dto.response.CurrencyChangeJobResponse;
+import com.onyshkiv.finance.model.entity.Currency;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Progress of a background base-currency conversion. Written by the worker thread, read by status requests.
+ */
+@Getter
+public final class CurrencyChangeJob {
+    public enum Status {
+        PENDING, RUNNING, COMPLETED, FAILED
+    }
+
+    private final UUID id = UUID.randomUUID();
+    private final UUID userId;
+    private final Currency currency;
+    private final LocalDateTime createdAt = LocalDateTime.now();
+    private final AtomicInteger totalTransactions = new AtomicInteger();
+    private final AtomicInteger convertedTransactions = new AtomicInteger();
+    private volatile Status status = Status.PENDING;
+    private volatile String error;
+    private volatile LocalDateTime finishedAt;
+
+    public CurrencyChangeJob(UUID userId, Currency currency) {
+        this.userId = userId;
+        this.currency = currency;
+    }
+
+    public void start() {
+        status = Status.RUNNING;
+    }
+
+    public void setTotal(int total) {
+        totalTransactions.set(total);
+    }
+
+    public void addConverted(int count) {
+        convertedTransactions.addAndGet(count);
+    }
+
+    public void complete() {
+        finishedAt = LocalDateTime.now();
+        status = Status.COMPLETED;
+    }
+
+    public void fail(String message) {
+        error = message;
+        finishedAt = LocalDateTime.now();
+        status = Status.FAILED;
+    }
+
+    public CurrencyChangeJobResponse toResponse() {
+        return CurrencyChangeJobResponse.builder()
+                .id(id)
+                .currency(currency.name())
+                .status(status.name())
+                .totalTransactions(totalTransactions.get())
+                .convertedTransactions(convertedTransactions.get())
+                .error(error)
+                .createdAt(createdAt)
+                .finishedAt(finishedAt)
+                .build();
+    }
+}
@@ -0,0 +1,49 @@
+package com.onyshkiv.finance.util;
+
+import com.onyshkiv.finance.model.entity.Currency;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Rates of all supported currencies against a single base currency for one day, indexed by {@link Currency#ordinal()}.
+ * Any pair is derived as a cross rate, so one downloaded table serves every conversion of that day.
+ */
+public final class ExchangeRateTable {
+    private static final Currency[] CURRENCIES = Currency.values();
+
+    private final double[] rates;
+
+    private ExchangeRateTable(double[] rates) {
+        this.rates = rates;
+    }
+
+    public static ExchangeRateTable of(Map<Currency, Double> baseRates) {
+        double[] rates = new double[CURRENCIES.length];
+        Arrays.fill(rates, Double.NaN);
+        baseRates.forEach((currency, rate) -> rates[currency.ordinal()] = rate);
+        return new ExchangeRateTable(rates);
+    }
+
+    public boolean supports(Currency currency) {
+        double rate = rates[currency.ordinal()];
+        return !Double.isNaN(rate) && rate > 0;
+    }
+
+    /**
+     * @return how many units of {@code to} one unit of {@code from} is worth, or {@code NaN} if either currency is missing
+     */
+    public double crossRate(Currency from, Currency to) {
+        if (from == to) {
+            return 1d;
+        }
+        if (!supports(from) || !supports(to)) {
+            return Double.NaN;
+        }
+        return rates[to.ordinal()] / rates[from.ordinal()];
+    }
+
+    public double baseRate(Currency currency) {
+        return rates[currency.ordinal()];
+    }
+}
@@ -0,0 +1,41 @@
+package com.onyshkiv.finance.util;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.onyshkiv.finance.exception.UnsupportedException;
+import com.onyshkiv.finance.model.dto.ImportedTransactionRow;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.Consumer;
+
+/**
+ * Reads a JSON array of {@link ImportedTransactionRow} objects with Jackson's streaming parser, binding one element at a time.
+ */
+public final class JsonTransactionImportParser implements TransactionImportParser {
+    private final ObjectMapper objectMapper;
+
+    public JsonTransactionImportParser(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public void parse(InputStream inputStream, Consumer<ImportedTransactionRow> consumer) throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(inputStream)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new UnsupportedException("JSON import should be an array of transactions");
+            }
+            int index = 0;
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                try {
+                    consumer.accept(objectMapper.readValue(parser, ImportedTransactionRow.class));
+                } catch (JsonProcessingException e) {
+                    throw new UnsupportedException("Invalid JSON transaction at index " + index + ": " + e.getOriginalMessage());
+                }
+                index++;
+            }
+        }
+    }
+}
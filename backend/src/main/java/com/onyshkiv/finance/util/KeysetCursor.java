@@ -0,0 +1,38 @@
+package com.onyshkiv.finance.util;
+
+import com.onyshkiv.finance.exception.UnsupportedException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Opaque keyset position over feeds ordered by {@code (date DESC, id DESC)}.
+ */
+public record KeysetCursor(LocalDate date, UUID id) {
+    private static final String SEPARATOR = "|";
+
+    public String encode() {
+        String raw = date + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Orders ids the way Postgres orders {@code uuid} values, i.e. as unsigned bytes.
+     */
+    public static int compareIds(UUID first, UUID second) {
+        return first.toString().compareTo(second.toString());
+    }
+
+    public static KeysetCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(SEPARATOR);
+            return new KeysetCursor(LocalDate.parse(raw.substring(0, separator)), UUID.fromString(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException | IndexOutOfBoundsException e) {
+            throw new UnsupportedException("Invalid cursor: " + cursor);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.onyshkiv.finance.util;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalListener;
+import com.onyshkiv.finance.model.entity.CategoryMcc;
+import com.onyshkiv.finance.model.entity.TransactionType;
+import com.onyshkiv.finance.repository.CategoryMccRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.onyshkiv.finance.util.TransactionHooks.afterCommit;
+
+/**
+ * Resolves MCC codes to category ids from memory. Each (user, type) pair is loaded lazily into a sorted
+ * {@code int[]} of MCC codes with a parallel {@code UUID[]} of category ids, so a lookup is a binary search.
+ * Category writes invalidate the pair once the writing transaction has committed. A pair's generation counter lives
+ * only while its table is cached or loading. Cache, entry and memory metrics are published to Micrometer as
+ * {@code mcc.index}.
+ */
+@Component
+public class MccCategoryIndex implements MeterBinder {
+    private static final long MAX_WEIGHT = 1_000_000;
+    private static final long TABLE_OVERHEAD_BYTES = 64;
+    private static final long ENTRY_BYTES = Integer.BYTES + 4 + 32;
+
+    private final CategoryMccRepository categoryMccRepository;
+    private final Map<Key, AtomicLong> generations = new ConcurrentHashMap<>();
+    private final Cache<Key, MccTable> tables = CacheBuilder.newBuilder()
+            .maximumWeight(MAX_WEIGHT)
+            .weigher((Key key, MccTable table) -> table.size() + 1)
+            .expireAfterAccess(Duration.ofHours(6))
+            .removalListener((RemovalListener<Key, MccTable>) notification -> {
+                if (notification.getKey() != null && notification.getCause() != RemovalCause.REPLACED) {
+                    generations.remove(notification.getKey());
+                }
+            })
+            .recordStats()
+            .build();
+
+    @Autowired
+    public MccCategoryIndex(CategoryMccRepository categoryMccRepository) {
+        this.categoryMccRepository = categoryMccRepository;
+    }
+
+    /**
+     * @return id of the user's category of the given type that owns the MCC code, or {@code null} if there is none
+     */
+    public UUID findCategoryId(UUID userId, TransactionType type, Integer mccCode) {
+        if (mccCode == null) {
+            return null;
+        }
+        return table(new Key(userId, type)).find(mccCode);
+    }
+
+    public void invalidate(UUID userId, TransactionType type) {
+        Key key = new Key(userId, type);
+        afterCommit(() -> {
+            AtomicLong generation = generations.get(key);
+            if (generation != null) {
+                generation.incrementAndGet();
+            }
+            tables.invalidate(key);
+            generations.remove(key);
+        });
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        GuavaCacheMetrics.monitor(registry, tables, "mcc.index");
+        Gauge.builder("mcc.index.entries", this, index -> index.tables.asMap().values().stream()
+                        .mapToLong(MccTable::size).sum())
+                .description("MCC codes held by all cached tables")
+                .register(registry);
+        Gauge.builder("mcc.index.memory", this, index -> index.tables.asMap().values().stream()
+                        .mapToLong(table -> TABLE_OVERHEAD_BYTES + ENTRY_BYTES * table.size()).sum())
+                .description("Estimated memory held by all cached tables")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    private MccTable table(Key key) {
+        MccTable cached = tables.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        AtomicLong generation = generations.computeIfAbsent(key, k -> new AtomicLong());
+        long snapshot = generation.get();
+        MccTable table = MccTable.of(categoryMccRepository.findAllByUserIdAndType(key.userId(), key.type()));
+        if (isCurrent(key, generation, snapshot)) {
+            tables.put(key, table);
+            if (!isCurrent(key, generation, snapshot)) {
+                tables.invalidate(key);
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Invalidation drops the counter, so a load that started before it fails the identity check even when a fresh
+     * counter has started again at zero.
+     */
+    private boolean isCurrent(Key key, AtomicLong generation, long snapshot) {
+        return generations.get(key) == generation && generation.get() == snapshot;
+    }
+
+    private record Key(UUID userId, TransactionType type) {
+    }
+
+    private static final class MccTable {
+        private final int[] mccCodes;
+        private final UUID[] categoryIds;
+
+        private MccTable(int[] mccCodes, UUID[] categoryIds) {
+            this.mccCodes = mccCodes;
+            this.categoryIds = categoryIds;
+        }
+
+        static MccTable of(List<CategoryMcc> categoryMccs) {
+            List<CategoryMcc> sorted = categoryMccs.stream()
+                    .sorted(Comparator.comparingInt(CategoryMcc::getMccCode))
+                    .toList();
+            int[] mccCodes = new int[sorted.size()];
+            UUID[] categoryIds = new UUID[sorted.size()];
+            for (int i = 0; i < sorted.size(); i++) {
+                mccCodes[i] = sorted.get(i).getMccCode();
+                categoryIds[i] = sorted.get(i).getCategoryId();
+            }
+            return new MccTable(mccCodes, categoryIds);
+        }
+
+        UUID find(int mccCode) {
+            int index = Arrays.binarySearch(mccCodes, mccCode);
+            return index >= 0 ? categoryIds[index] : null;
+        }
+
+        int size() {
+            return mccCodes.length;
+        }
+    }
+}
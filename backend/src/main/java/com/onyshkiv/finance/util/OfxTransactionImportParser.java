@@ -0,0 +1,117 @@
+package com.onyshkiv.finance.util;
+
+import com.onyshkiv.finance.exception.UnsupportedException;
+import com.onyshkiv.finance.model.dto.ImportedTransactionRow;
+import com.onyshkiv.finance.model.entity.Currency;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Reads {@code STMTTRN} records of OFX 1.x (SGML, unclosed leaf tags) and OFX 2.x (XML) statements with a single pass
+ * tag scanner. {@code FITID} becomes the external id and {@code CURDEF} the currency of the following transactions.
+ */
+public final class OfxTransactionImportParser implements TransactionImportParser {
+    private static final DateTimeFormatter OFX_DATE = DateTimeFormatter.BASIC_ISO_DATE;
+    private static final String TRANSACTION_TAG = "STMTTRN";
+
+    @Override
+    public void parse(InputStream inputStream, Consumer<ImportedTransactionRow> consumer) throws IOException {
+        Reader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+        Map<String, String> transaction = null;
+        Currency currency = null;
+        String tag = null;
+        StringBuilder text = new StringBuilder();
+        int index = 0;
+        int c;
+        while ((c = reader.read()) != -1) {
+            if (c != '<') {
+                if (tag != null) {
+                    text.append((char) c);
+                }
+                continue;
+            }
+            String value = unescape(text.toString().trim());
+            text.setLength(0);
+            if (tag != null && !value.isEmpty()) {
+                if ("CURDEF".equals(tag)) {
+                    currency = currency(value);
+                } else if (transaction != null) {
+                    transaction.put(tag, value);
+                }
+            }
+
+            tag = readTag(reader);
+            if (TRANSACTION_TAG.equals(tag)) {
+                transaction = new HashMap<>();
+            } else if (("/" + TRANSACTION_TAG).equals(tag) && transaction != null) {
+                consumer.accept(toRow(transaction, currency, index++));
+                transaction = null;
+            }
+            if (tag.startsWith("/")) {
+                tag = null;
+            }
+        }
+    }
+
+    private static ImportedTransactionRow toRow(Map<String, String> transaction, Currency currency, int index) {
+        try {
+            String posted = transaction.get("DTPOSTED");
+            String name = transaction.get("NAME");
+            String memo = transaction.get("MEMO");
+            String description = name == null ? memo : memo == null || memo.equals(name) ? name : name + " " + memo;
+            return new ImportedTransactionRow(
+                    LocalDate.parse(posted.substring(0, 8), OFX_DATE),
+                    CsvTransactionImportParser.parseAmount(transaction.get("TRNAMT")),
+                    null,
+                    currency,
+                    null,
+                    description,
+                    transaction.get("FITID"));
+        } catch (DateTimeParseException | IllegalArgumentException | NullPointerException | IndexOutOfBoundsException e) {
+            throw new UnsupportedException("Invalid OFX transaction at index " + index + ": " + e.getMessage());
+        }
+    }
+
+    private static Currency currency(String value) {
+        try {
+            return Currency.valueOf(value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new UnsupportedException("Unsupported OFX currency " + value);
+        }
+    }
+
+    private static String readTag(Reader reader) throws IOException {
+        StringBuilder tag = new StringBuilder();
+        int c;
+        while ((c = reader.read()) != -1 && c != '>') {
+            tag.append((char) c);
+        }
+        String name = tag.toString().trim();
+        int space = name.indexOf(' ');
+        return (space < 0 ? name : name.substring(0, space)).toUpperCase(Locale.ROOT);
+    }
+
+    private static String unescape(String value) {
+        if (value.indexOf('&') < 0) {
+            return value;
+        }
+        return value.replace("&lt;", "<")
+                .replace("&gt;", ">")
+                .replace("&quot;", "\"")
+                .replace("&apos;", "'")
+                .replace("&nbsp;", " ")
+                .replace("&amp;", "&");
+    }
+}
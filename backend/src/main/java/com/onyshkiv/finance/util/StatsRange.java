@@ -0,0 +1,20 @@
+package com.onyshkiv.finance.util;
+
+import java.time.LocalDate;
+
+/**
+ * Splits an inclusive date range into whole calendar months {@code [monthsFrom, monthsTo)}, served by monthly rollups,
+ * and the edge days {@code [from, monthsFrom)} and {@code [monthsTo, toExclusive)}, served by daily rollups.
+ */
+public record StatsRange(LocalDate from, LocalDate monthsFrom, LocalDate monthsTo, LocalDate toExclusive) {
+
+    public static StatsRange of(LocalDate from, LocalDate to) {
+        LocalDate toExclusive = to.plusDays(1);
+        LocalDate monthsFrom = from.getDayOfMonth() == 1 ? from : from.withDayOfMonth(1).plusMonths(1);
+        LocalDate monthsTo = toExclusive.withDayOfMonth(1);
+        if (!monthsFrom.isBefore(monthsTo)) {
+            return new StatsRange(from, toExclusive, toExclusive, toExclusive);
+        }
+        return new StatsRange(from, monthsFrom, monthsTo, toExclusive);
+    }
+}
@@ -0,0 +1,138 @@
+package com.onyshkiv.finance.util;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalListener;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static com.onyshkiv.finance.util.TransactionHooks.afterCommit;
+
+/**
+ * Caches {@code StatsService} results per user, endpoint and date range.
+ * Writes evict only the entries whose range covers the written date, once the writing transaction has committed.
+ * A user's generation counter lives only while the user has cached results or a load in flight. Hit and eviction
+ * counts are published to Micrometer as the {@code stats.results} cache.
+ */
+@Component
+public class StatsResultCache implements MeterBinder {
+    private static final long MAX_WEIGHT = 200_000;
+
+    private final Map<UUID, Set<Key>> keysByUser = new ConcurrentHashMap<>();
+    private final Map<UUID, AtomicLong> generations = new ConcurrentHashMap<>();
+    private final Cache<Key, Object> results = CacheBuilder.newBuilder()
+            .maximumWeight(MAX_WEIGHT)
+            .weigher((Key key, Object value) -> value instanceof Collection<?> collection ? collection.size() + 1 : 1)
+            .expireAfterAccess(Duration.ofMinutes(30))
+            .expireAfterWrite(Duration.ofHours(6))
+            .removalListener((RemovalListener<Key, Object>) notification -> {
+                // a replaced value keeps its key in the cache, so the key must stay indexed for later evictions
+                Key key = notification.getKey();
+                if (key != null && notification.getCause() != RemovalCause.REPLACED) {
+                    keysByUser.computeIfPresent(key.userId(), (userId, keys) -> {
+                        keys.remove(key);
+                        return keys.isEmpty() ? null : keys;
+                    });
+                    pruneGeneration(key.userId());
+                }
+            })
+            .recordStats()
+            .build();
+
+    /**
+     * @param from first covered date, {@code null} when the result depends on all of the user's history
+     * @param to   last covered date, {@code null} when the result depends on all of the user's history
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(UUID userId, String endpoint, LocalDate from, LocalDate to, Supplier<T> loader) {
+        Key key = new Key(userId, endpoint, from, to);
+        Object cached = results.getIfPresent(key);
+        if (cached != null) {
+            return (T) cached;
+        }
+        AtomicLong generation = generations.computeIfAbsent(userId, id -> new AtomicLong());
+        long snapshot = generation.get();
+        T value = loader.get();
+        if (value != null && isCurrent(userId, generation, snapshot)) {
+            keysByUser.computeIfAbsent(userId, id -> ConcurrentHashMap.newKeySet()).add(key);
+            results.put(key, value);
+            if (!isCurrent(userId, generation, snapshot)) {
+                results.invalidate(key);
+            }
+        } else {
+            pruneGeneration(userId);
+        }
+        return value;
+    }
+
+    public void evictDate(UUID userId, LocalDate date) {
+        afterCommit(() -> {
+            advanceGeneration(userId);
+            Set<Key> keys = keysByUser.get(userId);
+            if (keys != null) {
+                keys.stream().filter(key -> key.covers(date)).toList().forEach(results::invalidate);
+            }
+            pruneGeneration(userId);
+        });
+    }
+
+    public void evictUser(UUID userId) {
+        afterCommit(() -> {
+            advanceGeneration(userId);
+            Set<Key> keys = keysByUser.get(userId);
+            if (keys != null) {
+                results.invalidateAll(Set.copyOf(keys));
+            }
+            pruneGeneration(userId);
+        });
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        GuavaCacheMetrics.monitor(registry, results, "stats.results");
+    }
+
+    /**
+     * A load may only be cached while its counter is still the user's counter and no write committed since the load
+     * started. A counter dropped by {@link #pruneGeneration} fails the first check, so a fresh counter starting again at
+     * zero cannot let a stale load through.
+     */
+    private boolean isCurrent(UUID userId, AtomicLong generation, long snapshot) {
+        return generations.get(userId) == generation && generation.get() == snapshot;
+    }
+
+    /**
+     * Without a counter no load of the user is in flight, so there is nothing to invalidate.
+     */
+    private void advanceGeneration(UUID userId) {
+        AtomicLong generation = generations.get(userId);
+        if (generation != null) {
+            generation.incrementAndGet();
+        }
+    }
+
+    private void pruneGeneration(UUID userId) {
+        if (!keysByUser.containsKey(userId)) {
+            generations.remove(userId);
+        }
+    }
+
+    private record Key(UUID userId, String endpoint, LocalDate from, LocalDate to) {
+        boolean covers(LocalDate date) {
+            return (from == null || !date.isBefore(from)) && (to == null || !date.isAfter(to));
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.onyshkiv.finance.util;
+
+import com.onyshkiv.finance.model.dto.ImportedTransactionRow;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.Consumer;
+
+/**
+ * Streams the rows of a bank export to the consumer one by one, so the file is never held in memory.
+ */
+public interface TransactionImportParser {
+    void parse(InputStream inputStream, Consumer<ImportedTransactionRow> consumer) throws IOException;
+}
@@ -0,0 +1,130 @@
+package com.onyshkiv.finance;
+
+import com.onyshkiv.finance.model.entity.Currency;
+import com.onyshkiv.finance.model.entity.TransactionType;
+import com.onyshkiv.finance.repository.UserRepository;
+import com.onyshkiv.finance.security.CustomUserDetails;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Boots the application against an embedded PostgreSQL that is started once per test JVM and migrated by Liquibase,
+ * so repository queries, locks and indexes are exercised on the real database engine.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("test")
+public abstract class PostgresIntegrationTest {
+    private static final EmbeddedPostgres POSTGRES = startPostgres();
+
+    @Autowired
+    protected JdbcTemplate jdbcTemplate;
+    @Autowired
+    private UserRepository userRepository;
+
+    @DynamicPropertySource
+    static void datasourceProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> POSTGRES.getJdbcUrl("postgres", "postgres"));
+        registry.add("spring.datasource.username", () -> "postgres");
+        registry.add("spring.datasource.password", () -> "postgres");
+    }
+
+    protected UUID createUser(Currency currency) {
+        UUID id = UUID.randomUUID();
+        jdbcTemplate.update("""
+                        INSERT INTO "user" (id, login, email, password, currency, created_at)
+                        VALUES (?, ?, ?, 'password', CAST(? AS currency_enum), now())""",
+                id, "user-" + id, id + "@test.com", currency.name());
+        return id;
+    }
+
+    /**
+     * Inserts the cashbox together with its opening ledger entry, as {@code CashboxService.save} does.
+     */
+    protected UUID createCashbox(UUID userId, Currency currency, BigDecimal balance) {
+        UUID id = UUID.randomUUID();
+        jdbcTemplate.update("""
+                        INSERT INTO cashbox (id, name, currency, balance, created_at, user_id)
+                        VALUES (?, ?, CAST(? AS currency_enum), ?, now(), ?)""",
+                id, "cashbox-" + id.toString().substring(0, 8), currency.name(), balance, userId);
+        jdbcTemplate.update("""
+                        INSERT INTO cashbox_ledger (cashbox_id, delta, entry_type, entry_date)
+                        VALUES (?, ?, 'OPENING', CURRENT_DATE)""",
+                id, balance);
+        return id;
+    }
+
+    protected UUID createCategory(UUID userId, TransactionType type) {
+        UUID id = UUID.randomUUID();
+        jdbcTemplate.update("""
+                        INSERT INTO category (id, user_id, name, type, created_at)
+                        VALUES (?, ?, ?, CAST(? AS type_enum), now())""",
+                id, userId, "category-" + id.toString().substring(0, 8), type.name());
+        return id;
+    }
+
+    /**
+     * Authenticates the current thread as the user, as the JWT filter does for a request.
+     */
+    protected void loginAs(UUID userId) {
+        CustomUserDetails userDetails = new CustomUserDetails(userRepository.findById(userId).orElseThrow());
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities()));
+    }
+
+    /**
+     * Runs the task on {@code threads} threads released at the same moment and rethrows the first failure.
+     */
+    protected static void runConcurrently(int threads, ThreadTask task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>(threads);
+            for (int i = 0; i < threads; i++) {
+                int thread = i;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    task.run(thread);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(2, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @FunctionalInterface
+    protected interface ThreadTask {
+        void run(int thread) throws Exception;
+    }
+
+    private static EmbeddedPostgres startPostgres() {
+        try {
+            return EmbeddedPostgres.builder().start();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
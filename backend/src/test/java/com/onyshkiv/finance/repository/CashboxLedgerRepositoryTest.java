@@ -0,0 +1,135 @@
+package com.onyshkiv.finance.repository;
+
+import com.onyshkiv.finance.PostgresIntegrationTest;
+import com.onyshkiv.finance.model.dto.CashboxLedgerEntryDto;
+import com.onyshkiv.finance.model.entity.CashboxLedgerEntryType;
+import com.onyshkiv.finance.model.entity.Currency;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CashboxLedgerRepositoryTest extends PostgresIntegrationTest {
+    @Autowired
+    private CashboxLedgerRepository cashboxLedgerRepository;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void foldKeepsCurrentBalanceAndRefreshesCachedBalance() {
+        UUID cashboxId = createCashbox(createUser(Currency.UAH), Currency.UAH, new BigDecimal("100.00"));
+        cashboxLedgerRepository.append(entry(cashboxId, "25.50"));
+        fold();
+        cashboxLedgerRepository.append(entry(cashboxId, "-5.50"));
+
+        assertEquals(new BigDecimal("120.00"), cashboxLedgerRepository.currentBalance(cashboxId));
+        assertEquals(new BigDecimal("125.50"), cachedBalance(cashboxId));
+        assertEquals(1, snapshotCount(cashboxId));
+
+        fold();
+
+        assertEquals(new BigDecimal("120.00"), cashboxLedgerRepository.currentBalance(cashboxId));
+        assertEquals(new BigDecimal("120.00"), cachedBalance(cashboxId));
+        assertEquals(1, snapshotCount(cashboxId));
+    }
+
+    @Test
+    void foldDoesNotSkipEntriesCommittedAfterIt() throws Exception {
+        UUID cashboxId = createCashbox(createUser(Currency.UAH), Currency.UAH, new BigDecimal("10.00"));
+        CountDownLatch appended = new CountDownLatch(1);
+        CountDownLatch folded = new CountDownLatch(1);
+
+        CompletableFuture<Void> lateWriter = CompletableFuture.runAsync(() -> transactionTemplate.executeWithoutResult(status -> {
+            cashboxLedgerRepository.append(entry(cashboxId, "7.00"));
+            appended.countDown();
+            await(folded);
+        }));
+        assertTrue(appended.await(10, TimeUnit.SECONDS));
+        cashboxLedgerRepository.append(entry(cashboxId, "3.00"));
+        fold();
+        folded.countDown();
+        lateWriter.get(10, TimeUnit.SECONDS);
+
+        assertEquals(new BigDecimal("20.00"), cashboxLedgerRepository.currentBalance(cashboxId));
+        fold();
+        assertEquals(new BigDecimal("20.00"), cashboxLedgerRepository.currentBalance(cashboxId));
+        assertEquals(new BigDecimal("20.00"), cachedBalance(cashboxId));
+    }
+
+    @Test
+    void foldIsSkippedWhileAnotherRunHoldsTheLock() throws Exception {
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch checked = new CountDownLatch(1);
+
+        CompletableFuture<Void> firstRun = CompletableFuture.runAsync(() -> transactionTemplate.executeWithoutResult(status -> {
+            cashboxLedgerRepository.foldSnapshots(1);
+            locked.countDown();
+            await(checked);
+        }));
+        assertTrue(locked.await(10, TimeUnit.SECONDS));
+        Integer secondRun = transactionTemplate.execute(status -> cashboxLedgerRepository.foldSnapshots(1));
+        checked.countDown();
+        firstRun.get(10, TimeUnit.SECONDS);
+
+        assertEquals(-1, secondRun);
+    }
+
+    @Test
+    void checkpointLockWaitsForUncommittedAppends() throws Exception {
+        UUID cashboxId = createCashbox(createUser(Currency.UAH), Currency.UAH, BigDecimal.ZERO);
+        CountDownLatch appended = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+
+        CompletableFuture<Void> backDatedWriter = CompletableFuture.runAsync(() -> transactionTemplate.executeWithoutResult(status -> {
+            cashboxLedgerRepository.append(new CashboxLedgerEntryDto(cashboxId, new BigDecimal("40.00"),
+                    CashboxLedgerEntryType.TRANSACTION, null, LocalDate.now().minusYears(1)));
+            appended.countDown();
+            await(commit);
+        }));
+        assertTrue(appended.await(10, TimeUnit.SECONDS));
+        CompletableFuture<BigDecimal> checkpointWriter = CompletableFuture.supplyAsync(() -> transactionTemplate.execute(status -> {
+            cashboxLedgerRepository.lockCheckpoints(cashboxId);
+            return cashboxLedgerRepository.sumBetween(cashboxId, null, LocalDate.now().minusDays(1));
+        }));
+
+        assertThrows(TimeoutException.class, () -> checkpointWriter.get(500, TimeUnit.MILLISECONDS));
+        commit.countDown();
+        backDatedWriter.get(10, TimeUnit.SECONDS);
+        assertEquals(new BigDecimal("40.00"), checkpointWriter.get(10, TimeUnit.SECONDS));
+    }
+
+    private void fold() {
+        transactionTemplate.executeWithoutResult(status -> cashboxLedgerRepository.foldSnapshots(1));
+    }
+
+    private BigDecimal cachedBalance(UUID cashboxId) {
+        return jdbcTemplate.queryForObject("SELECT balance FROM cashbox WHERE id = ?", BigDecimal.class, cashboxId);
+    }
+
+    private int snapshotCount(UUID cashboxId) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM cashbox_balance_snapshot WHERE cashbox_id = ?", Integer.class, cashboxId);
+    }
+
+    private static CashboxLedgerEntryDto entry(UUID cashboxId, String delta) {
+        return new CashboxLedgerEntryDto(cashboxId, new BigDecimal(delta), CashboxLedgerEntryType.ADJUSTMENT, null, LocalDate.now());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.onyshkiv.finance.repository;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.onyshkiv.finance.PostgresIntegrationTest;
+import com.onyshkiv.finance.model.entity.Currency;
+import com.onyshkiv.finance.model.entity.TransactionType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the plans of the stats summary and rollup maintenance queries, so a dropped covering index or a date predicate the index
+ * cannot serve shows up as a failing test instead of a sequential scan in production.
+ */
+class StatsIndexUsageTest extends PostgresIntegrationTest {
+    private static final int USERS = 40;
+    private static final LocalDate FIRST_DAY = LocalDate.of(2023, 1, 1);
+    private static final LocalDate LAST_DAY = LocalDate.of(2024, 12, 31);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private UUID userId;
+
+    @BeforeEach
+    void seedTransactions() {
+        for (int i = 0; i < USERS; i++) {
+            userId = createUser(Currency.UAH);
+            UUID cashboxId = createCashbox(userId, Currency.UAH, BigDecimal.ZERO);
+            UUID categoryId = createCategory(userId, TransactionType.EXPENSE);
+            jdbcTemplate.update("""
+                            INSERT INTO transaction (id, user_id, category_id, type, amount, transaction_date,
+                                                     base_amount, base_currency, created_at, cashbox_id)
+                            SELECT gen_random_uuid(), ?, ?, 'EXPENSE', 10.00, day, 10.00, 'UAH', now(), ?
+                            FROM generate_series(CAST(? AS DATE), CAST(? AS DATE), INTERVAL '1 day') AS day""",
+                    userId, categoryId, cashboxId, Date.valueOf(FIRST_DAY), Date.valueOf(LAST_DAY));
+            jdbcTemplate.update("""
+                            INSERT INTO transaction_daily_rollup (id, user_id, rollup_date, type, category_id, cashbox_id,
+                                                                  amount, transaction_count)
+                            SELECT gen_random_uuid(), user_id, transaction_date, type, category_id, cashbox_id, SUM(amount), COUNT(*)
+                            FROM transaction
+                            WHERE user_id = ?
+                            GROUP BY user_id, transaction_date, type, category_id, cashbox_id""",
+                    userId);
+        }
+        jdbcTemplate.execute("VACUUM ANALYZE transaction");
+        jdbcTemplate.execute("VACUUM ANALYZE transaction_daily_rollup");
+    }
+
+    @Test
+    void transactionRangeSummaryUsesCoveringIndex() {
+        JsonNode scan = findScan(explain("""
+                        SELECT EXTRACT(MONTH FROM transaction_date) AS month, type, SUM(amount)
+                        FROM transaction
+                        WHERE user_id = ?
+                          AND transaction_date >= ? AND transaction_date < ?
+                        GROUP BY month, type""",
+                userId, Date.valueOf(LocalDate.of(2024, 1, 1)), Date.valueOf(LocalDate.of(2025, 1, 1))), "transaction");
+
+        assertIndexOnlyScan(scan, "idx_transaction_user_date", "transaction_date >=");
+    }
+
+    @Test
+    void dailyRollupRangeSummaryUsesCoveringIndex() {
+        JsonNode scan = findScan(explain("""
+                        SELECT EXTRACT(DAY FROM rollup_date) AS day, type, SUM(amount)
+                        FROM transaction_daily_rollup
+                        WHERE user_id = ?
+                          AND rollup_date >= ? AND rollup_date < ?
+                        GROUP BY day, type""",
+                userId, Date.valueOf(LocalDate.of(2024, 3, 1)), Date.valueOf(LocalDate.of(2024, 4, 1))), "transaction_daily_rollup");
+
+        assertIndexOnlyScan(scan, "idx_transaction_daily_rollup_user_date", "rollup_date >=");
+    }
+
+    @Test
+    void categoryMoveReadsOnlyTheUsersRollups() {
+        JsonNode plan = explain("""
+                        DELETE FROM transaction_daily_rollup
+                        WHERE user_id = ?
+                          AND category_id IS NOT DISTINCT FROM CAST(? AS UUID)
+                          AND type = CAST(? AS type_enum)""",
+                userId, UUID.randomUUID(), TransactionType.EXPENSE.name());
+
+        List<JsonNode> nodes = new ArrayList<>();
+        collect(plan, nodes);
+        assertTrue(nodes.stream().anyMatch(node -> node.path("Index Cond").asText().contains("user_id")),
+                "Expected the user to be an index condition but got: " + plan);
+    }
+
+    private JsonNode explain(String sql, Object... args) {
+        String plan = jdbcTemplate.queryForObject("EXPLAIN (FORMAT JSON) " + sql, String.class, args);
+        try {
+            return objectMapper.readTree(plan).get(0).get("Plan");
+        } catch (Exception e) {
+            throw new IllegalStateException("Unreadable plan: " + plan, e);
+        }
+    }
+
+    private static JsonNode findScan(JsonNode plan, String relation) {
+        List<JsonNode> nodes = new ArrayList<>();
+        collect(plan, nodes);
+        return nodes.stream()
+                .filter(node -> relation.equals(node.path("Relation Name").asText()))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("No scan of " + relation + " in plan: " + plan));
+    }
+
+    private static void collect(JsonNode node, List<JsonNode> nodes) {
+        nodes.add(node);
+        for (JsonNode child : node.path("Plans")) {
+            collect(child, nodes);
+        }
+    }
+
+    private static void assertIndexOnlyScan(JsonNode scan, String indexName, String indexCondition) {
+        assertTrue("Index Only Scan".equals(scan.path("Node Type").asText())
+                        && indexName.equals(scan.path("Index Name").asText()),
+                "Expected an index-only scan on " + indexName + " but got: " + scan);
+        assertTrue(scan.path("Index Cond").asText().contains(indexCondition),
+                "Expected the date range to be an index condition but got: " + scan);
+    }
+}
@@ -0,0 +1,102 @@
+package com.onyshkiv.finance.service.impl;
+
+import com.onyshkiv.finance.PostgresIntegrationTest;
+import com.onyshkiv.finance.exception.UnsupportedException;
+import com.onyshkiv.finance.model.dto.request.BatchTransferRequest;
+import com.onyshkiv.finance.model.dto.request.TransferRequest;
+import com.onyshkiv.finance.model.entity.Currency;
+import com.onyshkiv.finance.repository.CashboxLedgerRepository;
+import com.onyshkiv.finance.service.CashboxService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CashboxServiceImplTest extends PostgresIntegrationTest {
+    private static final int THREADS = 16;
+    private static final int TRANSFERS_PER_THREAD = 30;
+    private static final BigDecimal OPENING_BALANCE = new BigDecimal("100.00");
+
+    @Autowired
+    private CashboxService cashboxService;
+    @Autowired
+    private CashboxLedgerRepository cashboxLedgerRepository;
+
+    @AfterEach
+    void logout() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void concurrentOppositeAndBatchTransfersNeitherDeadlockNorOverdraw() throws Exception {
+        UUID userId = createUser(Currency.UAH);
+        List<UUID> cashboxIds = List.of(
+                createCashbox(userId, Currency.UAH, OPENING_BALANCE),
+                createCashbox(userId, Currency.UAH, OPENING_BALANCE),
+                createCashbox(userId, Currency.UAH, OPENING_BALANCE));
+        AtomicInteger applied = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+
+        runConcurrently(THREADS, thread -> {
+            loginAs(userId);
+            for (int i = 0; i < TRANSFERS_PER_THREAD; i++) {
+                BigDecimal amount = BigDecimal.valueOf(1_000 + thread * 137 + i * 71, 2);
+                UUID first = cashboxIds.get(thread % 2);
+                UUID second = cashboxIds.get(1 - thread % 2);
+                try {
+                    if (i % 4 == 3) {
+                        cashboxService.transferBatch(new BatchTransferRequest(List.of(
+                                transfer(first, second, amount),
+                                transfer(second, cashboxIds.get(2), amount),
+                                transfer(cashboxIds.get(2), first, amount.add(BigDecimal.ONE)))));
+                    } else {
+                        cashboxService.transfer(transfer(first, second, amount));
+                    }
+                    applied.incrementAndGet();
+                } catch (UnsupportedException e) {
+                    rejected.incrementAndGet();
+                }
+            }
+        });
+
+        assertEquals(THREADS * TRANSFERS_PER_THREAD, applied.get() + rejected.get());
+        assertTrue(applied.get() > 0);
+        Map<UUID, BigDecimal> balances = cashboxLedgerRepository.currentBalances(cashboxIds);
+        BigDecimal total = BigDecimal.ZERO;
+        for (UUID cashboxId : cashboxIds) {
+            BigDecimal balance = balances.get(cashboxId);
+            assertTrue(balance.signum() >= 0, "cashbox " + cashboxId + " is overdrawn: " + balance);
+            assertEquals(OPENING_BALANCE.add(transferredTo(cashboxId)).subtract(transferredFrom(cashboxId)), balance);
+            total = total.add(balance);
+        }
+        assertEquals(OPENING_BALANCE.multiply(BigDecimal.valueOf(cashboxIds.size())), total);
+    }
+
+    private BigDecimal transferredTo(UUID cashboxId) {
+        return jdbcTemplate.queryForObject("SELECT COALESCE(SUM(to_amount), 0) FROM transfer WHERE to_cashbox_id = ?", BigDecimal.class, cashboxId);
+    }
+
+    private BigDecimal transferredFrom(UUID cashboxId) {
+        return jdbcTemplate.queryForObject("SELECT COALESCE(SUM(from_amount), 0) FROM transfer WHERE from_cashbox_id = ?", BigDecimal.class, cashboxId);
+    }
+
+    private static TransferRequest transfer(UUID from, UUID to, BigDecimal amount) {
+        return TransferRequest.builder()
+                .cashboxFromId(from)
+                .cashboxToId(to)
+                .amount(amount)
+                .currencyCoefficient(BigDecimal.ONE)
+                .date(LocalDate.now())
+                .build();
+    }
+}
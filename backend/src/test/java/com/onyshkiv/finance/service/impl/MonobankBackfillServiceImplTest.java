@@ -0,0 +1,269 @@
+package com.onyshkiv.finance.service.impl;
+
+import com.onyshkiv.finance.PostgresIntegrationTest;
+import com.onyshkiv.finance.model.entity.Currency;
+import com.onyshkiv.finance.model.entity.MonobankBackfillCheckpoint;
+import com.onyshkiv.finance.model.entity.MonobankBackfillStatus;
+import com.onyshkiv.finance.repository.CashboxLedgerRepository;
+import com.onyshkiv.finance.repository.MonobankBackfillCheckpointRepository;
+import com.onyshkiv.finance.service.MonobankBackfillService;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.jce.spec.ECNamedCurveGenParameterSpec;
+import org.bouncycastle.openssl.jcajce.JcaPEMWriter;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPairGenerator;
+import java.security.Security;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the backfill against a local HTTP stand-in for the Monobank statement endpoint.
+ */
+class MonobankBackfillServiceImplTest extends PostgresIntegrationTest {
+    private static final HttpServer MONOBANK = startMonobank();
+    private static final Queue<String> STATEMENT_REQUESTS = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger RATE_LIMITED_REQUESTS = new AtomicInteger();
+    private static volatile List<StatementItem> statementItems = List.of();
+
+    @Autowired
+    private MonobankBackfillService monobankBackfillService;
+    @Autowired
+    private MonobankBackfillCheckpointRepository checkpointRepository;
+    @Autowired
+    private CashboxLedgerRepository cashboxLedgerRepository;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private String accountId;
+    private String requestId;
+    private UUID userId;
+    private UUID cashboxId;
+
+    @DynamicPropertySource
+    static void monobankProperties(DynamicPropertyRegistry registry) {
+        registry.add("monobank.api-url", () -> "http://localhost:" + MONOBANK.getAddress().getPort());
+        registry.add("monobank.private-key-file-path", MonobankBackfillServiceImplTest::writePrivateKey);
+        registry.add("monobank.backfill.requests-per-client", () -> 1000);
+        registry.add("monobank.backfill.refill-interval-seconds", () -> 1);
+    }
+
+    @AfterAll
+    static void stopMonobank() {
+        MONOBANK.stop(0);
+    }
+
+    @BeforeEach
+    void createMonitoredAccount() {
+        jdbcTemplate.update("UPDATE monobank_backfill_checkpoint SET status = 'COMPLETED'");
+        STATEMENT_REQUESTS.clear();
+        RATE_LIMITED_REQUESTS.set(0);
+        userId = createUser(Currency.UAH);
+        cashboxId = createCashbox(userId, Currency.UAH, BigDecimal.ZERO);
+        accountId = "account-" + UUID.randomUUID();
+        // every Monobank client has its own request slots, so tests do not share the rate limit
+        requestId = "request-" + UUID.randomUUID();
+        jdbcTemplate.update("""
+                        INSERT INTO monobank_auth (user_id, request_id, accept_url, activated, created_at, updated_at)
+                        VALUES (?, ?, 'http://localhost/accept', TRUE, now(), now())""",
+                userId, requestId);
+        jdbcTemplate.update("""
+                        INSERT INTO monobank_account (id, user_id, client_id, name, account_id, send_id, iban, currency_code,
+                                                      type, monitor, created_at, updated_at, cashbox_id)
+                        VALUES (?, ?, 'client', 'black', ?, 'send', 'UA00', 980, 'BLACK', TRUE, now(), now(), ?)""",
+                UUID.randomUUID(), userId, accountId, cashboxId);
+        OffsetDateTime now = OffsetDateTime.now();
+        transactionTemplate.executeWithoutResult(status -> checkpointRepository.scheduleIfAbsent(accountId, userId, now.minusDays(40), now));
+    }
+
+    @Test
+    void importsEveryWindowUntilTheHistoryIsComplete() {
+        long now = OffsetDateTime.now().toEpochSecond();
+        statementItems = List.of(
+                new StatementItem("item-1", now - 86_400, -12_050),
+                new StatementItem("item-2", now - 86_400 * 10, 50_000),
+                new StatementItem("item-3", now - 86_400 * 35, -1_000));
+
+        monobankBackfillService.runDueBackfills();
+        monobankBackfillService.runDueBackfills();
+        monobankBackfillService.runDueBackfills();
+
+        MonobankBackfillCheckpoint checkpoint = checkpointRepository.findById(accountId).orElseThrow();
+        assertEquals(MonobankBackfillStatus.COMPLETED, checkpoint.getStatus());
+        assertEquals(3, checkpoint.getImportedCount());
+        assertEquals(2, STATEMENT_REQUESTS.size());
+        assertTrue(STATEMENT_REQUESTS.stream().allMatch(path -> path.startsWith("/personal/statement/" + accountId + "/")));
+        assertEquals(3, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM transaction WHERE user_id = ?", Integer.class, userId));
+        // history before the cashbox was created is already part of its opening balance
+        assertEquals(new BigDecimal("0.00"), cashboxLedgerRepository.currentBalance(cashboxId));
+    }
+
+    @Test
+    void itemsStoredBeforeExternalIdsAreNotBookedTwice() {
+        long now = OffsetDateTime.now().toEpochSecond();
+        StatementItem stored = new StatementItem("stored-1", now - 86_400, -12_050);
+        statementItems = List.of(
+                stored,
+                new StatementItem("stored-2", now - 86_400 * 10, 50_000),
+                new StatementItem("stored-3", now - 86_400 * 35, -1_000));
+        jdbcTemplate.update("UPDATE cashbox SET created_at = now() - INTERVAL '60 days' WHERE id = ?", cashboxId);
+        // a webhook transaction saved before external ids were recorded
+        jdbcTemplate.update("""
+                        INSERT INTO transaction (id, user_id, type, amount, transaction_date, base_amount, base_currency,
+                                                 created_at, cashbox_id)
+                        VALUES (?, ?, 'EXPENSE', 120.50, ?, 120.50, 'UAH', now(), ?)""",
+                UUID.randomUUID(), userId, stored.date(), cashboxId);
+
+        monobankBackfillService.runDueBackfills();
+        monobankBackfillService.runDueBackfills();
+
+        MonobankBackfillCheckpoint checkpoint = checkpointRepository.findById(accountId).orElseThrow();
+        assertEquals(MonobankBackfillStatus.COMPLETED, checkpoint.getStatus());
+        assertEquals(2, checkpoint.getImportedCount());
+        assertEquals(3, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM transaction WHERE cashbox_id = ?", Integer.class, cashboxId));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM transaction WHERE external_id = 'stored-1'", Integer.class));
+        assertEquals(new BigDecimal("490.00"), cashboxLedgerRepository.currentBalance(cashboxId));
+    }
+
+    @Test
+    void rateLimitedWindowIsRetriedLater() {
+        statementItems = List.of();
+        RATE_LIMITED_REQUESTS.set(1);
+
+        monobankBackfillService.runDueBackfills();
+
+        MonobankBackfillCheckpoint checkpoint = checkpointRepository.findById(accountId).orElseThrow();
+        assertEquals(MonobankBackfillStatus.PENDING, checkpoint.getStatus());
+        assertEquals(0, checkpoint.getAttempts());
+        assertTrue(checkpoint.getNextAttemptAt().isAfter(OffsetDateTime.now()));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM transaction WHERE user_id = ?", Integer.class, userId));
+    }
+
+    @Test
+    void concurrentRunsRequestEveryWindowOnce() throws Exception {
+        statementItems = List.of();
+
+        runConcurrently(2, thread -> monobankBackfillService.runDueBackfills());
+
+        assertEquals(1, STATEMENT_REQUESTS.size());
+        assertEquals(0, checkpointRepository.findById(accountId).orElseThrow().getImportedCount());
+    }
+
+    @Test
+    void accountsOfOneClientAreNotRequestedInTheSameRun() {
+        statementItems = List.of();
+        String secondAccountId = "account-" + UUID.randomUUID();
+        jdbcTemplate.update("""
+                        INSERT INTO monobank_account (id, user_id, client_id, name, account_id, send_id, iban, currency_code,
+                                                      type, monitor, created_at, updated_at, cashbox_id)
+                        VALUES (?, ?, 'client', 'white', ?, 'send', 'UA01', 980, 'WHITE', TRUE, now(), now(), ?)""",
+                UUID.randomUUID(), userId, secondAccountId, cashboxId);
+        OffsetDateTime now = OffsetDateTime.now();
+        transactionTemplate.executeWithoutResult(status -> checkpointRepository.scheduleIfAbsent(secondAccountId, userId, now.minusDays(40), now));
+
+        monobankBackfillService.runDueBackfills();
+
+        assertEquals(1, STATEMENT_REQUESTS.size());
+        MonobankBackfillCheckpoint waiting = checkpointRepository.findById(
+                STATEMENT_REQUESTS.peek().contains(accountId) ? secondAccountId : accountId).orElseThrow();
+        assertTrue(waiting.getNextAttemptAt().isAfter(now));
+    }
+
+    private static HttpServer startMonobank() {
+        try {
+            HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+            server.createContext("/personal/statement/", MonobankBackfillServiceImplTest::statement);
+            server.start();
+            return server;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void statement(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        if (exchange.getRequestHeaders().getFirst("X-Request-Id") == null
+                || exchange.getRequestHeaders().getFirst("X-Sign") == null) {
+            respond(exchange, 403, "{\"errorDescription\":\"forbidden\"}");
+            return;
+        }
+        if (RATE_LIMITED_REQUESTS.getAndUpdate(remaining -> Math.max(0, remaining - 1)) > 0) {
+            respond(exchange, 429, "{\"errorDescription\":\"Too many requests\"}");
+            return;
+        }
+        STATEMENT_REQUESTS.add(path);
+        String[] segments = path.split("/");
+        long from = Long.parseLong(segments[4]);
+        long to = Long.parseLong(segments[5]);
+        String body = statementItems.stream()
+                .filter(item -> item.time() >= from && item.time() <= to)
+                .map(StatementItem::toJson)
+                .reduce((first, second) -> first + "," + second)
+                .orElse("");
+        respond(exchange, 200, "[" + body + "]");
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(bytes);
+        }
+    }
+
+    private static String writePrivateKey() {
+        try {
+            Security.addProvider(new BouncyCastleProvider());
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("EC", "BC");
+            generator.initialize(new ECNamedCurveGenParameterSpec("secp256k1"));
+            Path keyFile = Files.createTempFile("monobank", ".key");
+            keyFile.toFile().deleteOnExit();
+            try (Writer writer = Files.newBufferedWriter(keyFile); JcaPEMWriter pemWriter = new JcaPEMWriter(writer)) {
+                pemWriter.writeObject(generator.generateKeyPair().getPrivate());
+            }
+            return keyFile.toString();
+        } catch (Exception e) {
+            throw new IllegalStateException("Cannot generate Monobank test key", e);
+        }
+    }
+
+    private record StatementItem(String id, long time, long amount) {
+        LocalDate date() {
+            return Instant.ofEpochSecond(time).atZone(ZoneId.of("Europe/Kyiv")).toLocalDate();
+        }
+
+        String toJson() {
+            return String.format("{\"id\":\"%s\",\"time\":%d,\"description\":\"backfill\",\"mcc\":5411,\"originalMcc\":5411," +
+                    "\"amount\":%d,\"operationAmount\":%d,\"currencyCode\":980,\"commissionRate\":0,\"cashbackAmount\":0," +
+                    "\"balance\":0,\"hold\":false}", id, time, amount, amount);
+        }
+    }
+}
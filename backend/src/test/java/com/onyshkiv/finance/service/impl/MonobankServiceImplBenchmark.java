@@ -0,0 +1,109 @@
+package com.onyshkiv.finance.service.impl;
+
+import org.bouncycastle.asn1.pkcs.PrivateKeyInfo;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.jce.spec.ECNamedCurveGenParameterSpec;
+import org.bouncycastle.openssl.PEMKeyPair;
+import org.bouncycastle.openssl.PEMParser;
+import org.bouncycastle.openssl.jcajce.JcaPEMKeyConverter;
+import org.bouncycastle.openssl.jcajce.JcaPEMWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.Security;
+import java.security.Signature;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the Monobank X-Sign path that parses the PEM key and creates a {@link Signature} on every request against
+ * {@link MonobankServiceImpl#generateSignature}, which reuses the cached key and a per-thread signer.
+ * <p>
+ * Run with {@code mvn test-compile} and then the {@link #main} method on the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class MonobankServiceImplBenchmark {
+    private static final String RESOURCE = "/personal/statement";
+    private static final String DATA = "1700000000request-id" + RESOURCE + "/account/1690000000/1700000000";
+
+    private Path keyFile;
+    private MonobankServiceImpl monobankService;
+
+    @Setup
+    public void setUp() throws Exception {
+        Security.addProvider(new BouncyCastleProvider());
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("EC", "BC");
+        generator.initialize(new ECNamedCurveGenParameterSpec("secp256k1"));
+        keyFile = Files.createTempFile("monobank", ".key");
+        try (Writer writer = Files.newBufferedWriter(keyFile); JcaPEMWriter pemWriter = new JcaPEMWriter(writer)) {
+            pemWriter.writeObject(generator.generateKeyPair().getPrivate());
+        }
+        monobankService = new MonobankServiceImpl(null, null, null, null, null, null, null, null, null, null, null,
+                null, null, null);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(keyFile);
+    }
+
+    @Benchmark
+    public String keyAndSignerPerCall() throws Exception {
+        PrivateKey privateKey = loadPrivateKey(keyFile);
+        Signature signer = Signature.getInstance("SHA256withECDSA", "BC");
+        signer.initSign(privateKey);
+        signer.update(DATA.getBytes(StandardCharsets.UTF_8));
+        return Base64.getEncoder().encodeToString(signer.sign());
+    }
+
+    @Benchmark
+    public String cachedKeyAndThreadLocalSigner() {
+        return monobankService.generateSignature(DATA, RESOURCE, keyFile.toString());
+    }
+
+    private static PrivateKey loadPrivateKey(Path keyFile) throws Exception {
+        try (Reader reader = Files.newBufferedReader(keyFile); PEMParser pemParser = new PEMParser(reader)) {
+            JcaPEMKeyConverter converter = new JcaPEMKeyConverter().setProvider("BC");
+            Object object;
+            while ((object = pemParser.readObject()) != null) {
+                if (object instanceof PEMKeyPair pemKeyPair) {
+                    return converter.getKeyPair(pemKeyPair).getPrivate();
+                }
+                if (object instanceof PrivateKeyInfo privateKeyInfo) {
+                    return converter.getPrivateKey(privateKeyInfo);
+                }
+            }
+            throw new IllegalStateException("No EC key found in " + keyFile);
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(MonobankServiceImplBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,95 @@
+package com.onyshkiv.finance.service.impl;
+
+import com.onyshkiv.finance.PostgresIntegrationTest;
+import com.onyshkiv.finance.exception.NotFoundException;
+import com.onyshkiv.finance.model.dto.monobank.StatementItemDetailsDto;
+import com.onyshkiv.finance.model.dto.monobank.StatementItemDto;
+import com.onyshkiv.finance.model.entity.Currency;
+import com.onyshkiv.finance.service.MonobankWebhookInboxService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.OffsetDateTime;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MonobankWebhookInboxServiceImplTest extends PostgresIntegrationTest {
+    @Autowired
+    private MonobankWebhookInboxService inboxService;
+
+    @Test
+    void onlyWebhooksOfMonitoredAccountsAreStored() {
+        String unknownAccountId = "account-" + UUID.randomUUID();
+        String unmonitoredAccountId = createAccount(false);
+        String monitoredAccountId = createAccount(true);
+
+        assertThrows(NotFoundException.class, () -> inboxService.enqueue(webhook(unknownAccountId)));
+        inboxService.enqueue(webhook(unmonitoredAccountId));
+        inboxService.enqueue(webhook(monitoredAccountId));
+
+        assertEquals(0, inboxCount(unknownAccountId));
+        assertEquals(0, inboxCount(unmonitoredAccountId));
+        assertEquals(1, inboxCount(monitoredAccountId));
+    }
+
+    @Test
+    void purgeDeletesOldDoneAndDeadWebhooks() {
+        String accountId = "account-" + UUID.randomUUID();
+        insertWebhook(accountId, "DONE", 10);
+        insertWebhook(accountId, "DEAD", 10);
+        UUID recentDead = insertWebhook(accountId, "DEAD", 1);
+        UUID oldPending = insertWebhook(accountId, "PENDING", 10);
+
+        inboxService.purgeProcessed();
+
+        assertEquals(Set.of(recentDead, oldPending), Set.copyOf(jdbcTemplate.queryForList(
+                "SELECT id FROM monobank_webhook_inbox WHERE account_id = ?", UUID.class, accountId)));
+    }
+
+    private String createAccount(boolean monitor) {
+        UUID userId = createUser(Currency.UAH);
+        UUID cashboxId = createCashbox(userId, Currency.UAH, BigDecimal.ZERO);
+        String accountId = "account-" + UUID.randomUUID();
+        jdbcTemplate.update("""
+                        INSERT INTO monobank_account (id, user_id, client_id, name, account_id, send_id, iban, currency_code,
+                                                      type, monitor, created_at, updated_at, cashbox_id)
+                        VALUES (?, ?, 'client', 'black', ?, 'send', 'UA00', 980, 'BLACK', ?, now(), now(), ?)""",
+                UUID.randomUUID(), userId, accountId, monitor, cashboxId);
+        return accountId;
+    }
+
+    private UUID insertWebhook(String accountId, String status, int ageDays) {
+        UUID id = UUID.randomUUID();
+        jdbcTemplate.update("""
+                        INSERT INTO monobank_webhook_inbox (id, account_id, payload, status, attempts, next_attempt_at,
+                                                            created_at, processed_at)
+                        VALUES (?, ?, '{}', ?, 0, now() + INTERVAL '1 day', now() - make_interval(days => ?),
+                                CASE WHEN ? = 'PENDING' THEN NULL ELSE now() - make_interval(days => ?) END)""",
+                id, accountId, status, ageDays, status, ageDays);
+        return id;
+    }
+
+    private int inboxCount(String accountId) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM monobank_webhook_inbox WHERE account_id = ?", Integer.class, accountId);
+    }
+
+    private static StatementItemDto webhook(String accountId) {
+        StatementItemDetailsDto item = StatementItemDetailsDto.builder()
+                .id(UUID.randomUUID().toString())
+                .time(OffsetDateTime.now().toEpochSecond())
+                .description("webhook")
+                .mcc(5411)
+                .amount(BigInteger.valueOf(-1_000))
+                .operationAmount(BigInteger.valueOf(-1_000))
+                .currencyCode(980)
+                .balance(BigDecimal.ZERO)
+                .hold(false)
+                .build();
+        return new StatementItemDto(accountId, item);
+    }
+}
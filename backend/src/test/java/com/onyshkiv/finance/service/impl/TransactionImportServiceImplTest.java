@@ -0,0 +1,71 @@
+package com.onyshkiv.finance.service.impl;
+
+import com.onyshkiv.finance.PostgresIntegrationTest;
+import com.onyshkiv.finance.model.dto.response.TransactionImportResponse;
+import com.onyshkiv.finance.model.entity.Currency;
+import com.onyshkiv.finance.model.entity.TransactionImportFormat;
+import com.onyshkiv.finance.repository.CashboxLedgerRepository;
+import com.onyshkiv.finance.service.CurrencyService;
+import com.onyshkiv.finance.service.TransactionImportService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+
+class TransactionImportServiceImplTest extends PostgresIntegrationTest {
+    @Autowired
+    private TransactionImportService transactionImportService;
+    @Autowired
+    private CashboxLedgerRepository cashboxLedgerRepository;
+    @MockitoBean
+    private CurrencyService currencyService;
+
+    @AfterEach
+    void logout() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void ratesArePrefetchedBeforeTheWriteTransaction() throws Exception {
+        UUID userId = createUser(Currency.UAH);
+        UUID cashboxId = createCashbox(userId, Currency.UAH, new BigDecimal("5000.00"));
+        loginAs(userId);
+        List<Set<LocalDate>> prefetches = new ArrayList<>();
+        List<Boolean> transactionActive = new ArrayList<>();
+        doAnswer(invocation -> {
+            prefetches.add(Set.copyOf(invocation.<Collection<LocalDate>>getArgument(0)));
+            transactionActive.add(TransactionSynchronizationManager.isActualTransactionActive());
+            return null;
+        }).when(currencyService).prefetchRates(any());
+        when(currencyService.getExchangeRate(eq(Currency.USD), eq(Currency.UAH), any())).thenReturn(new BigDecimal("40"));
+        String csv = "date,amount,currency,external_id\n"
+                + "2024-03-01,-100,USD,prefetch-1\n"
+                + "2024-03-02,50,UAH,prefetch-2\n";
+
+        TransactionImportResponse response = transactionImportService.importTransactions(cashboxId, TransactionImportFormat.CSV,
+                new ByteArrayResource(csv.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(new TransactionImportResponse(2, 2, 0), response);
+        assertEquals(List.of(Set.of(LocalDate.of(2024, 3, 1))), prefetches);
+        assertEquals(List.of(false), transactionActive);
+        assertEquals(new BigDecimal("1050.00"), cashboxLedgerRepository.currentBalance(cashboxId));
+    }
+}
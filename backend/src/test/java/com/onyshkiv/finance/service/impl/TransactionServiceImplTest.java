@@ -0,0 +1,173 @@
+package com.onyshkiv.finance.service.impl;
+
+import com.onyshkiv.finance.PostgresIntegrationTest;
+import com.onyshkiv.finance.model.dto.CategoryDto;
+import com.onyshkiv.finance.model.dto.TransactionDto;
+import com.onyshkiv.finance.model.dto.monobank.StatementItemDetailsDto;
+import com.onyshkiv.finance.model.dto.monobank.StatementItemDto;
+import com.onyshkiv.finance.model.dto.response.CashboxResponse;
+import com.onyshkiv.finance.model.entity.Currency;
+import com.onyshkiv.finance.model.entity.TransactionType;
+import com.onyshkiv.finance.repository.CashboxLedgerRepository;
+import com.onyshkiv.finance.service.CashboxService;
+import com.onyshkiv.finance.service.MonobankService;
+import com.onyshkiv.finance.service.TransactionService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TransactionServiceImplTest extends PostgresIntegrationTest {
+    private static final int THREADS = 16;
+    private static final int OPERATIONS_PER_THREAD = 25;
+    private static final LocalDate LISTING_FROM = LocalDate.of(2024, 1, 1);
+    private static final LocalDate LISTING_TO = LocalDate.of(2024, 1, 31);
+    private static final AtomicInteger MCC_CODES = new AtomicInteger(1000);
+
+    @Autowired
+    private TransactionService transactionService;
+    @Autowired
+    private MonobankService monobankService;
+    @Autowired
+    private CashboxService cashboxService;
+    @Autowired
+    private CashboxLedgerRepository cashboxLedgerRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @AfterEach
+    void logout() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void concurrentWritesToOneCashboxKeepTheBalanceExact() throws Exception {
+        UUID userId = createUser(Currency.UAH);
+        UUID cashboxId = createCashbox(userId, Currency.UAH, new BigDecimal("1000.00"));
+        UUID expenseCategoryId = createCategory(userId, TransactionType.EXPENSE);
+        UUID incomeCategoryId = createCategory(userId, TransactionType.INCOME);
+        String accountId = "account-" + UUID.randomUUID();
+        jdbcTemplate.update("""
+                        INSERT INTO monobank_account (id, user_id, client_id, name, account_id, send_id, iban, currency_code,
+                                                      type, monitor, created_at, updated_at, cashbox_id)
+                        VALUES (?, ?, 'client', 'black', ?, 'send', 'UA00', 980, 'BLACK', TRUE, now(), now(), ?)""",
+                UUID.randomUUID(), userId, accountId, cashboxId);
+        ConcurrentLinkedQueue<BigDecimal> deltas = new ConcurrentLinkedQueue<>();
+
+        runConcurrently(THREADS, thread -> {
+            loginAs(userId);
+            for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                BigDecimal amount = BigDecimal.valueOf(thread * 100 + i + 1, 2);
+                switch (i % 3) {
+                    case 0 -> {
+                        transactionService.save(transaction(TransactionType.EXPENSE, expenseCategoryId, cashboxId, amount));
+                        deltas.add(amount.negate());
+                    }
+                    case 1 -> {
+                        TransactionDto saved = transactionService.save(transaction(TransactionType.INCOME, incomeCategoryId, cashboxId, amount));
+                        transactionService.deleteTransaction(saved.getId());
+                    }
+                    default -> {
+                        monobankService.parseAndSaveTransactionWebhook(webhook(accountId, amount));
+                        deltas.add(amount);
+                    }
+                }
+            }
+        });
+
+        BigDecimal expected = deltas.stream().reduce(new BigDecimal("1000.00"), BigDecimal::add);
+        assertEquals(expected, cashboxLedgerRepository.currentBalance(cashboxId));
+        cashboxService.snapshotBalances();
+        assertEquals(expected, cashboxLedgerRepository.currentBalance(cashboxId));
+        assertEquals(expected, jdbcTemplate.queryForObject("SELECT balance FROM cashbox WHERE id = ?", BigDecimal.class, cashboxId));
+    }
+
+    @Test
+    void transactionListingsIssueAConstantNumberOfStatements() {
+        UUID userId = createUser(Currency.UAH);
+        seedListing(userId, 3, 10);
+        loginAs(userId);
+        long listStatements = statementsFor(() -> transactionService.getUserTransactions(TransactionType.EXPENSE));
+        long rangeStatements = statementsFor(() -> transactionService.getUserTransactionsByDateRange(LISTING_FROM, LISTING_TO));
+        long pageStatements = statementsFor(() -> transactionService.getUserTransactionsPage(LISTING_FROM, LISTING_TO, null, null, 200));
+
+        seedListing(userId, 20, 30);
+
+        assertEquals(listStatements, statementsFor(() -> transactionService.getUserTransactions(TransactionType.EXPENSE)),
+                "getUserTransactions statements grew with the number of rows");
+        assertEquals(rangeStatements, statementsFor(() -> transactionService.getUserTransactionsByDateRange(LISTING_FROM, LISTING_TO)),
+                "getUserTransactionsByDateRange statements grew with the number of rows");
+        assertEquals(pageStatements, statementsFor(() -> transactionService.getUserTransactionsPage(LISTING_FROM, LISTING_TO, null, null, 200)),
+                "getUserTransactionsPage statements grew with the number of rows");
+    }
+
+    /**
+     * Adds {@code categories} expense categories, each with two MCC codes and its own cashbox, and {@code perCategory}
+     * January 2024 transactions per category, so a listing touches many distinct lazy associations.
+     */
+    private void seedListing(UUID userId, int categories, int perCategory) {
+        for (int i = 0; i < categories; i++) {
+            UUID categoryId = createCategory(userId, TransactionType.EXPENSE);
+            UUID cashboxId = createCashbox(userId, Currency.UAH, BigDecimal.ZERO);
+            for (int j = 0; j < 2; j++) {
+                jdbcTemplate.update("""
+                                INSERT INTO category_mcc (id, category_id, user_id, type, mcc_code, created_at)
+                                VALUES (?, ?, ?, 'EXPENSE', ?, now())""",
+                        UUID.randomUUID(), categoryId, userId, MCC_CODES.incrementAndGet());
+            }
+            jdbcTemplate.update("""
+                            INSERT INTO transaction (id, user_id, category_id, type, amount, transaction_date,
+                                                     base_amount, base_currency, created_at, cashbox_id)
+                            SELECT gen_random_uuid(), ?, ?, 'EXPENSE', 10.00, CAST(? AS DATE) + n % 31, 10.00, 'UAH', now(), ?
+                            FROM generate_series(1, ?) AS n""",
+                    userId, categoryId, Date.valueOf(LISTING_FROM), cashboxId, perCategory);
+        }
+    }
+
+    private long statementsFor(Runnable listing) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        listing.run();
+        return statistics.getPrepareStatementCount();
+    }
+
+    private static TransactionDto transaction(TransactionType type, UUID categoryId, UUID cashboxId, BigDecimal amount) {
+        return TransactionDto.builder()
+                .type(type.name())
+                .category(CategoryDto.builder().id(categoryId).build())
+                .cashbox(CashboxResponse.builder().id(cashboxId).build())
+                .amount(amount)
+                .currency(Currency.UAH)
+                .coefficient(BigDecimal.ONE)
+                .transactionDate(LocalDate.now())
+                .build();
+    }
+
+    private static StatementItemDto webhook(String accountId, BigDecimal amount) {
+        StatementItemDetailsDto item = StatementItemDetailsDto.builder()
+                .id(UUID.randomUUID().toString())
+                .time(OffsetDateTime.now().plusMinutes(1).toEpochSecond())
+                .description("webhook")
+                .mcc(5411)
+                .amount(amount.movePointRight(2).toBigIntegerExact())
+                .operationAmount(amount.movePointRight(2).toBigIntegerExact())
+                .currencyCode(980)
+                .balance(BigDecimal.ZERO)
+                .hold(false)
+                .build();
+        return new StatementItemDto(accountId, item);
+    }
+}
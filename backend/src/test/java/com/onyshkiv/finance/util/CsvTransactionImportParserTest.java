@@ -0,0 +1,68 @@
+package com.onyshkiv.finance.util;
+
+import com.onyshkiv.finance.exception.UnsupportedException;
+import com.onyshkiv.finance.model.dto.ImportedTransactionRow;
+import com.onyshkiv.finance.model.entity.Currency;
+import com.onyshkiv.finance.model.entity.TransactionType;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CsvTransactionImportParserTest {
+    private final CsvTransactionImportParser parser = new CsvTransactionImportParser();
+
+    @Test
+    void readsCommaSeparatedRowsWithQuotedFields() throws IOException {
+        List<ImportedTransactionRow> rows = parse("date,amount,type,currency,category,description,external_id\r\n"
+                + "2024-03-01,-120.50,,UAH,Food,\"Grocery, \"\"Silpo\"\"\",tx-1\r\n"
+                + "2024-03-02,1000,income,usd,,\"Salary\nMarch\",tx-2\r\n");
+
+        assertEquals(List.of(
+                new ImportedTransactionRow(LocalDate.of(2024, 3, 1), new BigDecimal("-120.50"), null, Currency.UAH,
+                        "Food", "Grocery, \"Silpo\"", "tx-1"),
+                new ImportedTransactionRow(LocalDate.of(2024, 3, 2), new BigDecimal("1000"), TransactionType.INCOME, Currency.USD,
+                        null, "Salary\nMarch", "tx-2")), rows);
+    }
+
+    @Test
+    void readsSemicolonSeparatedExportWithBomAndDecimalComma() throws IOException {
+        List<ImportedTransactionRow> rows = parse("\uFEFFDate;Amount;Description;ExternalId\n2024-03-01;-1\u00A0250,75;Rent;\n\n");
+
+        assertEquals(List.of(new ImportedTransactionRow(LocalDate.of(2024, 3, 1), new BigDecimal("-1250.75"), null, null,
+                null, "Rent", null)), rows);
+    }
+
+    @Test
+    void rejectsHeaderWithoutRequiredColumns() {
+        assertThrows(UnsupportedException.class, () -> parse("date,description\n2024-03-01,Rent\n"));
+    }
+
+    @Test
+    void reportsLineOfInvalidRow() {
+        UnsupportedException exception = assertThrows(UnsupportedException.class,
+                () -> parse("date,amount\n2024-03-01,10\n2024-13-01,10\n"));
+
+        assertTrue(exception.getMessage().contains("line 3"));
+    }
+
+    @Test
+    void emptyFileHasNoRows() throws IOException {
+        assertEquals(List.of(), parse(""));
+    }
+
+    private List<ImportedTransactionRow> parse(String csv) throws IOException {
+        List<ImportedTransactionRow> rows = new ArrayList<>();
+        parser.parse(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), rows::add);
+        return rows;
+    }
+}
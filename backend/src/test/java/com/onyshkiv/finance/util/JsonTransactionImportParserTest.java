@@ -0,0 +1,58 @@
+package com.onyshkiv.finance.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.onyshkiv.finance.exception.UnsupportedException;
+import com.onyshkiv.finance.model.dto.ImportedTransactionRow;
+import com.onyshkiv.finance.model.entity.Currency;
+import com.onyshkiv.finance.model.entity.TransactionType;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JsonTransactionImportParserTest {
+    private final JsonTransactionImportParser parser = new JsonTransactionImportParser(new ObjectMapper().findAndRegisterModules());
+
+    @Test
+    void readsArrayOfTransactions() throws IOException {
+        List<ImportedTransactionRow> rows = parse("""
+                [
+                  {"date": "2024-03-01", "amount": -120.50, "currency": "UAH", "category": "Food", "externalId": "tx-1"},
+                  {"date": "2024-03-02", "amount": 1000, "type": "INCOME", "description": "Salary"}
+                ]""");
+
+        assertEquals(List.of(
+                new ImportedTransactionRow(LocalDate.of(2024, 3, 1), new BigDecimal("-120.50"), null, Currency.UAH,
+                        "Food", null, "tx-1"),
+                new ImportedTransactionRow(LocalDate.of(2024, 3, 2), new BigDecimal("1000"), TransactionType.INCOME, null,
+                        null, "Salary", null)), rows);
+    }
+
+    @Test
+    void rejectsDocumentThatIsNotAnArray() {
+        assertThrows(UnsupportedException.class, () -> parse("{\"date\": \"2024-03-01\", \"amount\": 1}"));
+    }
+
+    @Test
+    void reportsIndexOfInvalidTransaction() {
+        UnsupportedException exception = assertThrows(UnsupportedException.class,
+                () -> parse("[{\"date\": \"2024-03-01\", \"amount\": 1}, {\"date\": \"yesterday\", \"amount\": 1}]"));
+
+        assertTrue(exception.getMessage().contains("index 1"));
+    }
+
+    private List<ImportedTransactionRow> parse(String json) throws IOException {
+        List<ImportedTransactionRow> rows = new ArrayList<>();
+        parser.parse(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), rows::add);
+        return rows;
+    }
+}
@@ -0,0 +1,68 @@
+package com.onyshkiv.finance.util;
+
+import com.onyshkiv.finance.model.entity.CategoryMcc;
+import com.onyshkiv.finance.model.entity.TransactionType;
+import com.onyshkiv.finance.repository.CategoryMccRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MccCategoryIndexTest {
+    private static final int GROCERIES = 5411;
+
+    private final CategoryMccRepository categoryMccRepository = mock(CategoryMccRepository.class);
+    private final MccCategoryIndex index = new MccCategoryIndex(categoryMccRepository);
+
+    @Test
+    void generationIsDroppedWithTheInvalidatedTable() {
+        UUID userId = UUID.randomUUID();
+        UUID categoryId = UUID.randomUUID();
+        when(categoryMccRepository.findAllByUserIdAndType(userId, TransactionType.EXPENSE))
+                .thenReturn(List.of(categoryMcc(userId, categoryId)));
+
+        assertEquals(categoryId, index.findCategoryId(userId, TransactionType.EXPENSE, GROCERIES));
+        assertEquals(1, generations().size());
+
+        index.invalidate(userId, TransactionType.EXPENSE);
+        index.invalidate(UUID.randomUUID(), TransactionType.INCOME);
+
+        assertEquals(0, generations().size());
+    }
+
+    @Test
+    void loadStartedBeforeAnInvalidationIsNotCached() {
+        UUID userId = UUID.randomUUID();
+        UUID categoryId = UUID.randomUUID();
+        when(categoryMccRepository.findAllByUserIdAndType(userId, TransactionType.EXPENSE))
+                .thenAnswer(invocation -> {
+                    index.invalidate(userId, TransactionType.EXPENSE);
+                    return List.of();
+                })
+                .thenReturn(List.of(categoryMcc(userId, categoryId)));
+
+        index.findCategoryId(userId, TransactionType.EXPENSE, GROCERIES);
+
+        assertEquals(categoryId, index.findCategoryId(userId, TransactionType.EXPENSE, GROCERIES));
+    }
+
+    private Map<?, ?> generations() {
+        return (Map<?, ?>) ReflectionTestUtils.getField(index, "generations");
+    }
+
+    private static CategoryMcc categoryMcc(UUID userId, UUID categoryId) {
+        return CategoryMcc.builder()
+                .id(UUID.randomUUID())
+                .categoryId(categoryId)
+                .userId(userId)
+                .type(TransactionType.EXPENSE)
+                .mccCode(GROCERIES)
+                .build();
+    }
+}
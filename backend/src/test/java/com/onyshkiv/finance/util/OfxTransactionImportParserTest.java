@@ -0,0 +1,85 @@
+package com.onyshkiv.finance.util;
+
+import com.onyshkiv.finance.exception.UnsupportedException;
+import com.onyshkiv.finance.model.dto.ImportedTransactionRow;
+import com.onyshkiv.finance.model.entity.Currency;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class OfxTransactionImportParserTest {
+    private final OfxTransactionImportParser parser = new OfxTransactionImportParser();
+
+    @Test
+    void readsSgmlStatementWithUnclosedTags() throws IOException {
+        List<ImportedTransactionRow> rows = parse("""
+                OFXHEADER:100
+                DATA:OFXSGML
+                <OFX><BANKMSGSRSV1><STMTTRNRS><STMTRS>
+                <CURDEF>usd
+                <BANKTRANLIST>
+                <STMTTRN>
+                <TRNTYPE>DEBIT
+                <DTPOSTED>20240301120000[-5:EST]
+                <TRNAMT>-42.10
+                <FITID>2024030101
+                <NAME>Coffee &amp; Co
+                <MEMO>Card 1234
+                </STMTTRN>
+                <STMTTRN>
+                <TRNTYPE>CREDIT
+                <DTPOSTED>20240302
+                <TRNAMT>1500.00
+                <FITID>2024030201
+                <NAME>Payroll
+                <MEMO>Payroll
+                </STMTTRN>
+                </BANKTRANLIST>
+                </STMTRS></STMTTRNRS></BANKMSGSRSV1></OFX>
+                """);
+
+        assertEquals(List.of(
+                new ImportedTransactionRow(LocalDate.of(2024, 3, 1), new BigDecimal("-42.10"), null, Currency.USD,
+                        null, "Coffee & Co Card 1234", "2024030101"),
+                new ImportedTransactionRow(LocalDate.of(2024, 3, 2), new BigDecimal("1500.00"), null, Currency.USD,
+                        null, "Payroll", "2024030201")), rows);
+    }
+
+    @Test
+    void readsXmlStatement() throws IOException {
+        List<ImportedTransactionRow> rows = parse("""
+                <?xml version="1.0" encoding="UTF-8"?>
+                <?OFX OFXHEADER="200" VERSION="220"?>
+                <OFX><CURDEF>EUR</CURDEF>
+                <STMTTRN><DTPOSTED>20240305</DTPOSTED><TRNAMT>-9.99</TRNAMT><FITID>abc</FITID><MEMO>Music</MEMO></STMTTRN>
+                </OFX>""");
+
+        assertEquals(List.of(new ImportedTransactionRow(LocalDate.of(2024, 3, 5), new BigDecimal("-9.99"), null, Currency.EUR,
+                null, "Music", "abc")), rows);
+    }
+
+    @Test
+    void rejectsTransactionWithoutAmount() {
+        assertThrows(UnsupportedException.class, () -> parse("<STMTTRN><DTPOSTED>20240305<FITID>abc</STMTTRN>"));
+    }
+
+    @Test
+    void rejectsUnsupportedCurrency() {
+        assertThrows(UnsupportedException.class, () -> parse("<CURDEF>XYZ<STMTTRN><DTPOSTED>20240305<TRNAMT>1</STMTTRN>"));
+    }
+
+    private List<ImportedTransactionRow> parse(String ofx) throws IOException {
+        List<ImportedTransactionRow> rows = new ArrayList<>();
+        parser.parse(new ByteArrayInputStream(ofx.getBytes(StandardCharsets.UTF_8)), rows::add);
+        return rows;
+    }
+}
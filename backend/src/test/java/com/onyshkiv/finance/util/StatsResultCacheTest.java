@@ -0,0 +1,75 @@
+package com.onyshkiv.finance.util;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class StatsResultCacheTest {
+    private static final LocalDate FROM = LocalDate.of(2024, 1, 1);
+    private static final LocalDate TO = LocalDate.of(2024, 1, 31);
+
+    private final StatsResultCache cache = new StatsResultCache();
+
+    @Test
+    void replacedResultIsStillEvicted() {
+        UUID userId = UUID.randomUUID();
+        cache.get(userId, "summary", FROM, TO, () -> {
+            cache.get(userId, "summary", FROM, TO, () -> "concurrent load");
+            return "first load";
+        });
+
+        cache.evictUser(userId);
+
+        assertEquals("reloaded", cache.get(userId, "summary", FROM, TO, () -> "reloaded"));
+    }
+
+    @Test
+    void evictionIsScopedToUserAndDate() {
+        UUID userId = UUID.randomUUID();
+        UUID otherUserId = UUID.randomUUID();
+        cache.get(userId, "summary", FROM, TO, () -> "january");
+        cache.get(userId, "summary", TO.plusDays(1), TO.plusMonths(1), () -> "february");
+        cache.get(otherUserId, "summary", FROM, TO, () -> "other user");
+
+        cache.evictDate(userId, FROM.plusDays(10));
+
+        assertEquals("reloaded", cache.get(userId, "summary", FROM, TO, () -> "reloaded"));
+        assertEquals("february", cache.get(userId, "summary", TO.plusDays(1), TO.plusMonths(1), () -> "reloaded"));
+        assertEquals("other user", cache.get(otherUserId, "summary", FROM, TO, () -> "reloaded"));
+    }
+
+    @Test
+    void generationsAreDroppedWithTheLastCachedResultOfTheUser() {
+        UUID userId = UUID.randomUUID();
+        UUID writingUserId = UUID.randomUUID();
+        cache.get(userId, "summary", FROM, TO, () -> "january");
+        cache.get(userId, "summary", TO.plusDays(1), TO.plusMonths(1), () -> "february");
+        cache.evictDate(writingUserId, FROM);
+
+        cache.evictDate(userId, FROM);
+        assertEquals(1, generations().size());
+
+        cache.evictUser(userId);
+        assertEquals(0, generations().size());
+    }
+
+    @Test
+    void loadStartedBeforeAnEvictionIsNotCached() {
+        UUID userId = UUID.randomUUID();
+        cache.get(userId, "summary", FROM, TO, () -> {
+            cache.evictUser(userId);
+            return "stale";
+        });
+
+        assertEquals("reloaded", cache.get(userId, "summary", FROM, TO, () -> "reloaded"));
+    }
+
+    private Map<?, ?> generations() {
+        return (Map<?, ?>) ReflectionTestUtils.getField(cache, "generations");
+    }
+}